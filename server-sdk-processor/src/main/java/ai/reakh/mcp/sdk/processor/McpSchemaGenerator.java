@@ -0,0 +1,320 @@
+package ai.reakh.mcp.sdk.processor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Build-time twin of {@code JsonSchemaElementUtils.jsonSchemaElementFrom} + {@code toMap} (non strict): walks the
+ * {@code @RequestBody} type on the compiler's model and produces the same schema, with {@code @McpField} descriptions
+ * left as i18n placeholders.
+ */
+class McpSchemaGenerator {
+
+    /**
+     * Same as {@code McpGeneratedTool.I18N_PLACEHOLDER_PREFIX}, the processor does not depend on the sdk.
+     */
+    static final String                I18N_PLACEHOLDER_PREFIX  = "i18n:";
+
+    static final String                MCP_FIELD                = "ai.reakh.mcp.sdk.annotation.McpField";
+
+    private static final String        DEFAULT_UUID_DESCRIPTION = "String in a UUID format";
+
+    private static final Set<String>   INTEGER_TYPES            = new HashSet<>(Arrays.asList("java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long",
+        "java.math.BigInteger"));
+
+    private static final Set<String>   NUMBER_TYPES             = new HashSet<>(Arrays.asList("java.lang.Float", "java.lang.Double", "java.math.BigDecimal"));
+
+    private final Elements             elements;
+
+    private final Types                types;
+
+    private final TypeMirror           charSequenceType;
+
+    private final TypeMirror           collectionType;
+
+    private final Map<String, Visited> visited                  = new HashMap<>();
+
+    McpSchemaGenerator(Elements elements, Types types){
+        this.elements = elements;
+        this.types = types;
+        this.charSequenceType = elements.getTypeElement("java.lang.CharSequence").asType();
+        this.collectionType = types.erasure(elements.getTypeElement("java.util.Collection").asType());
+    }
+
+    /**
+     * @return schema of a tool input or output type as json.
+     */
+    String schema(TypeMirror type) {
+        visited.clear();
+        StringBuilder sb = new StringBuilder();
+        writeJson(sb, schemaOf(type, null, false));
+        return sb.toString();
+    }
+
+    private Map<String, Object> schemaOf(TypeMirror type, String fieldDescription, boolean subFieldsRequired) {
+        switch (type.getKind()) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return simple("integer", fieldDescription);
+            case FLOAT:
+            case DOUBLE:
+                return simple("number", fieldDescription);
+            case BOOLEAN:
+                return simple("boolean", fieldDescription);
+            case CHAR:
+                return simple("string", fieldDescription);
+            case ARRAY:
+                return array(schemaOf(((ArrayType) type).getComponentType(), null, subFieldsRequired), fieldDescription);
+            case DECLARED:
+                return declared((DeclaredType) type, fieldDescription, subFieldsRequired);
+            default:
+                // type variables, wildcards: what reflection would see after erasure
+                TypeMirror erased = types.erasure(type);
+                if (erased.getKind() == TypeKind.DECLARED || erased.getKind() == TypeKind.ARRAY) {
+                    return schemaOf(erased, fieldDescription, subFieldsRequired);
+                }
+                return new LinkedHashMap<>();
+        }
+    }
+
+    private Map<String, Object> declared(DeclaredType type, String fieldDescription, boolean subFieldsRequired) {
+        TypeElement element = (TypeElement) type.asElement();
+        String name = element.getQualifiedName().toString();
+        TypeMirror erased = types.erasure(type);
+
+        if ("java.lang.String".equals(name) || "java.lang.Character".equals(name) || "java.util.UUID".equals(name)
+            || types.isAssignable(erased, charSequenceType)) {
+            return simple("string", fieldDescription != null ? fieldDescription : classDescription(element));
+        }
+
+        if (INTEGER_TYPES.contains(name)) {
+            return simple("integer", fieldDescription);
+        }
+
+        if (NUMBER_TYPES.contains(name)) {
+            return simple("number", fieldDescription);
+        }
+
+        if ("java.lang.Boolean".equals(name)) {
+            return simple("boolean", fieldDescription);
+        }
+
+        if (element.getKind() == ElementKind.ENUM) {
+            List<String> values = new ArrayList<>();
+            for (Element e : element.getEnclosedElements()) {
+                if (e.getKind() == ElementKind.ENUM_CONSTANT) {
+                    values.add(e.getSimpleName().toString());
+                }
+            }
+
+            Map<String, Object> map = simple("string", fieldDescription != null ? fieldDescription : classDescription(element));
+            map.put("enum", values);
+            return map;
+        }
+
+        if (types.isAssignable(erased, collectionType)) {
+            List<? extends TypeMirror> args = type.getTypeArguments();
+            Map<String, Object> items = args.size() == 1 ? schemaOf(types.erasure(args.get(0)), null, subFieldsRequired) : new LinkedHashMap<>();
+            return array(items, fieldDescription);
+        }
+
+        return object(element, fieldDescription, subFieldsRequired);
+    }
+
+    private Map<String, Object> object(TypeElement element, String description, boolean subFieldsRequired) {
+        String className = elements.getBinaryName(element).toString();
+        Visited seen = visited.get(className);
+        if (seen != null && isCustomClass(className)) {
+            if (seen.schema == null) {
+                // still being built further up: recursion
+                Map<String, Object> ref = new LinkedHashMap<>();
+                ref.put("$ref", "#/$defs/" + seen.reference);
+                return ref;
+            }
+            return objectSchema(description, seen.properties, seen.required);
+        }
+
+        Visited current = new Visited(generateUUIDFrom(className));
+        visited.put(className, current);
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        List<String> required = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+            String fieldName = fieldName(field);
+            if (field.getModifiers().contains(Modifier.STATIC) || fieldName.equals("__$hits$__") || fieldName.startsWith("this$")) {
+                continue;
+            }
+
+            AnnotationMirror mcpField = findAnnotation(field, MCP_FIELD);
+            if (mcpField != null ? Boolean.TRUE.equals(annotationValue(mcpField, "required")) : subFieldsRequired) {
+                required.add(fieldName);
+            }
+
+            String fieldDescription = mcpField != null ? I18N_PLACEHOLDER_PREFIX + annotationValue(mcpField, "value") : null;
+            properties.put(fieldName, schemaOf(field.asType(), fieldDescription, subFieldsRequired));
+        }
+
+        current.properties = properties;
+        current.required = required;
+        current.schema = objectSchema(description != null ? description : classDescription(element), properties, required);
+        return current.schema;
+    }
+
+    private Map<String, Object> objectSchema(String description, Map<String, Object> properties, List<String> required) {
+        Map<String, Object> map = simple("object", description);
+        map.put("properties", properties);
+        map.put("required", required);
+        return map;
+    }
+
+    private Map<String, Object> simple(String type, String description) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("type", type);
+        if (description != null) {
+            map.put("description", description);
+        }
+        return map;
+    }
+
+    private Map<String, Object> array(Map<String, Object> items, String description) {
+        Map<String, Object> map = simple("array", description);
+        map.put("items", items);
+        return map;
+    }
+
+    private String classDescription(TypeElement element) {
+        if ("java.util.UUID".contentEquals(element.getQualifiedName())) {
+            return DEFAULT_UUID_DESCRIPTION;
+        }
+
+        AnnotationMirror mcpField = findAnnotation(element, MCP_FIELD);
+        return mcpField != null ? I18N_PLACEHOLDER_PREFIX + annotationValue(mcpField, "value") : null;
+    }
+
+    private String fieldName(VariableElement field) {
+        AnnotationMirror mcpField = findAnnotation(field, MCP_FIELD);
+        if (mcpField != null) {
+            Object alias = annotationValue(mcpField, "alias");
+            if (alias != null && !alias.toString().trim().isEmpty()) {
+                return alias.toString();
+            }
+        }
+        return field.getSimpleName().toString();
+    }
+
+    AnnotationMirror findAnnotation(Element element, String annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value, or its default, unwrapped.
+     */
+    Object annotationValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    static boolean isCustomClass(String className) {
+        return !className.startsWith("java.") && !className.startsWith("javax.") && !className.startsWith("jdk.") && !className.startsWith("sun.")
+               && !className.startsWith("com.sun.");
+    }
+
+    /**
+     * Same reference id as {@code RagUtils.generateUUIDFrom}.
+     */
+    private static String generateUUIDFrom(String input) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(input.getBytes(UTF_8));
+            String hex = HexFormat.of().withUpperCase().formatHex(hash);
+            return UUID.nameUUIDFromBytes(hex.getBytes(UTF_8)).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static void writeJson(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                writeJson(sb, entry.getKey());
+                sb.append(':');
+                writeJson(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof List) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : (List<Object>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                writeJson(sb, item);
+            }
+            sb.append(']');
+        } else {
+            sb.append('"');
+            String s = value.toString();
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+
+    private static class Visited {
+
+        private final String        reference;
+
+        private Map<String, Object> properties;
+
+        private List<String>        required;
+
+        /**
+         * Null while the class is being built.
+         */
+        private Map<String, Object> schema;
+
+        private Visited(String reference){
+            this.reference = reference;
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package ai.reakh.mcp.sdk.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates, for every class declaring {@code @McpTool} methods, a {@code McpGeneratedTools} subclass holding the
+ * tool names, labels, full api paths, input schemas and reflection-free invokers, and lists them in
+ * {@code META-INF/services}. The runtime registers such providers without scanning them. Applications enable it with
+ * {@code annotationProcessor "ai.reakh.mcp:server-sdk-processor"}.
+ */
+@SupportedAnnotationTypes(McpToolProcessor.MCP_TOOL)
+public class McpToolProcessor extends AbstractProcessor {
+
+    static final String         MCP_TOOL         = "ai.reakh.mcp.sdk.annotation.McpTool";
+
+    private static final String GENERATED_TOOLS  = "ai.reakh.mcp.sdk.mcp.tool.McpGeneratedTools";
+
+    private static final String GENERATED_TOOL   = "ai.reakh.mcp.sdk.mcp.tool.McpGeneratedTool";
+
+    private static final String SERVICE_FILE     = "META-INF/services/" + GENERATED_TOOLS;
+
+    private static final String REQUEST_BODY     = "org.springframework.web.bind.annotation.RequestBody";
+
+    private static final String VALIDATED        = "org.springframework.validation.annotation.Validated";
+
+    private static final String REQUEST_MAPPING  = "org.springframework.web.bind.annotation.RequestMapping";
+
+    private static final String POST_MAPPING     = "org.springframework.web.bind.annotation.PostMapping";
+
+    private static final String GET_MAPPING      = "org.springframework.web.bind.annotation.GetMapping";
+
+    private static final String SERVLET_REQUEST  = "jakarta.servlet.ServletRequest";
+
+    private static final String RESPONSE_ENTITY  = "org.springframework.http.ResponseEntity";
+
+    private static final String RESULT_FORMAT    = "ai.reakh.mcp.sdk.constants.McpResultFormat";
+
+    private static final String CLASS_SUFFIX     = "_McpTools";
+
+    private final Set<String>   generatedClasses = new TreeSet<>();
+
+    private Elements            elements;
+
+    private Types               types;
+
+    private Filer               filer;
+
+    private Messager            messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        TypeElement mcpTool = elements.getTypeElement(MCP_TOOL);
+        if (mcpTool == null) {
+            return false;
+        }
+
+        Map<TypeElement, List<ExecutableElement>> toolsByType = new LinkedHashMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(mcpTool)) {
+            // type level @McpTool is ignored by the runtime as well
+            if (element.getKind() == ElementKind.METHOD) {
+                toolsByType.computeIfAbsent((TypeElement) element.getEnclosingElement(), k -> new ArrayList<>()).add((ExecutableElement) element);
+            }
+        }
+
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : toolsByType.entrySet()) {
+            TypeElement type = entry.getKey();
+            try {
+                generate(type, entry.getValue());
+            } catch (IOException | RuntimeException e) {
+                // the provider is still registered at runtime, through reflection
+                messager.printMessage(Diagnostic.Kind.WARNING, "[MCP] Generate tools of " + type + " failed, fall back to reflection: " + e, type);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement type, List<ExecutableElement> methods) throws IOException {
+        if (type.getModifiers().contains(Modifier.PRIVATE) || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "[MCP] Tools of non accessible class " + type + " are registered through reflection.", type);
+            return;
+        }
+
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String simpleName = flatName(type) + CLASS_SUFFIX;
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        String providerName = type.getQualifiedName().toString();
+        String classBase = mappingPath(type, REQUEST_MAPPING);
+
+        McpSchemaGenerator schemaGenerator = new McpSchemaGenerator(elements, types);
+        Set<String> names = new HashSet<>();
+
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("@javax.annotation.processing.Generated(\"").append(McpToolProcessor.class.getName()).append("\")\n");
+        sb.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+        sb.append("public final class ").append(simpleName).append(" extends ").append(GENERATED_TOOLS).append(" {\n\n");
+        sb.append("    private final java.util.List<").append(GENERATED_TOOL).append("> tools = java.util.Arrays.asList(");
+
+        boolean first = true;
+        for (ExecutableElement method : methods) {
+            AnnotationMirror mcpTool = schemaGenerator.findAnnotation(method, MCP_TOOL);
+            String toolName = String.valueOf(schemaGenerator.annotationValue(mcpTool, "name"));
+            if (toolName.trim().isEmpty()) {
+                toolName = method.getSimpleName().toString();
+            }
+            if (!names.add(toolName)) {
+                throw new IllegalStateException("Duplicate tool name '" + toolName + "'");
+            }
+
+            VariableElement body = findBodyParam(method);
+            String path = normalizePath(classBase, methodPath(method));
+
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("        ").append(GENERATED_TOOL).append(".builder(").append(literal(toolName)).append(")\n");
+            sb.append("            .label(").append(literal(String.valueOf(schemaGenerator.annotationValue(mcpTool, "value")))).append(")\n");
+            sb.append("            .apiPath(").append(literal(path)).append(")\n");
+            if (body != null) {
+                sb.append("            .bodyType(").append(typeExpression(body.asType())).append(")\n");
+                sb.append("            .inputSchema(").append(literal(schemaGenerator.schema(body.asType()))).append(")\n");
+            }
+            if (Boolean.TRUE.equals(schemaGenerator.annotationValue(mcpTool, "structured"))) {
+                TypeMirror output = outputType(method);
+                if (output != null) {
+                    sb.append("            .structured(true)\n");
+                    sb.append("            .outputSchema(").append(literal(schemaGenerator.schema(output))).append(")\n");
+                } else {
+                    messager.printMessage(Diagnostic.Kind.WARNING, "[MCP] Tool " + toolName + " does not return an object, structured result ignored.", method);
+                }
+            }
+            Object fields = schemaGenerator.annotationValue(mcpTool, "fields");
+            if (fields instanceof List && !((List<?>) fields).isEmpty()) {
+                List<String> literals = new ArrayList<>();
+                for (Object field : (List<?>) fields) {
+                    literals.add(literal(String.valueOf(((AnnotationValue) field).getValue())));
+                }
+                sb.append("            .fields(").append(String.join(", ", literals)).append(")\n");
+            }
+            Object resultFormat = schemaGenerator.annotationValue(mcpTool, "resultFormat");
+            if (resultFormat instanceof VariableElement && !((VariableElement) resultFormat).getSimpleName().contentEquals("JSON")) {
+                sb.append("            .resultFormat(").append(RESULT_FORMAT).append('.').append(((VariableElement) resultFormat).getSimpleName()).append(")\n");
+            }
+            sb.append("            .maxConcurrency(").append(schemaGenerator.annotationValue(mcpTool, "maxConcurrency")).append(")\n");
+            sb.append("            .adaptiveConcurrency(").append(schemaGenerator.annotationValue(mcpTool, "adaptiveConcurrency")).append(")\n");
+            sb.append("            .timeoutMillis(").append(schemaGenerator.annotationValue(mcpTool, "timeoutMillis")).append("L)\n");
+            sb.append("            .cacheTtlMillis(").append(schemaGenerator.annotationValue(mcpTool, "cacheTtlMillis")).append("L)\n");
+            sb.append("            .coalesce(").append(schemaGenerator.annotationValue(mcpTool, "coalesce")).append(")\n");
+            String invoker = invokerExpression(providerName, method);
+            if (invoker != null) {
+                sb.append("            .invoker(").append(invoker).append(")\n");
+            }
+            sb.append("            .build()");
+        }
+        sb.append(");\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public Class<?> providerType() {\n");
+        sb.append("        return ").append(providerName).append(".class;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public java.util.List<").append(GENERATED_TOOL).append("> tools() {\n");
+        sb.append("        return tools;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+
+        JavaFileObject file = filer.createSourceFile(className, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(sb.toString());
+        }
+        generatedClasses.add(className);
+    }
+
+    /**
+     * Lambda calling the method directly, null if it takes parameters which only spring mvc can resolve, a body only
+     * spring mvc validates, or is not accessible from the generated class.
+     */
+    private String invokerExpression(String providerName, ExecutableElement method) {
+        if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+            return null;
+        }
+
+        TypeElement servletRequest = elements.getTypeElement(SERVLET_REQUEST);
+        List<String> args = new ArrayList<>();
+        for (VariableElement param : method.getParameters()) {
+            TypeMirror erased = types.erasure(param.asType());
+            if (hasAnnotation(param, REQUEST_BODY)) {
+                if (isValidated(param)) {
+                    return null;
+                }
+                args.add("(" + erased + ") body");
+            } else if (servletRequest != null && types.isAssignable(erased, servletRequest.asType())) {
+                args.add("(" + erased + ") request");
+            } else {
+                return null;
+            }
+        }
+
+        String call = "((" + providerName + ") bean)." + method.getSimpleName() + "(" + String.join(", ", args) + ")";
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            return "(bean, body, request) -> {\n                " + call + ";\n                return null;\n            }";
+        }
+        return "(bean, body, request) -> " + call;
+    }
+
+    /**
+     * Same rules as {@code McpToolDefinition.outputTypeOf}: the return type unwrapped from {@code ResponseEntity},
+     * null unless it is an object of the application.
+     */
+    private TypeMirror outputType(ExecutableElement method) {
+        TypeMirror type = method.getReturnType();
+        if (type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(RESPONSE_ENTITY)) {
+            List<? extends TypeMirror> args = ((DeclaredType) type).getTypeArguments();
+            type = args.size() == 1 ? args.get(0) : null;
+        }
+
+        if (type == null || type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM || !McpSchemaGenerator.isCustomClass(elements.getBinaryName(element).toString())) {
+            return null;
+        }
+        return type;
+    }
+
+    /**
+     * Class literal, or a jackson type reference when the body type is generic.
+     */
+    private String typeExpression(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return "new com.fasterxml.jackson.core.type.TypeReference<" + type + ">() {}.getType()";
+        }
+        return types.erasure(type) + ".class";
+    }
+
+    private VariableElement findBodyParam(ExecutableElement method) {
+        for (VariableElement param : method.getParameters()) {
+            if (hasAnnotation(param, REQUEST_BODY)) {
+                return param;
+            }
+        }
+        return null;
+    }
+
+    private String methodPath(ExecutableElement method) {
+        for (String mapping : Arrays.asList(REQUEST_MAPPING, POST_MAPPING, GET_MAPPING)) {
+            if (hasAnnotation(method, mapping)) {
+                return mappingPath(method, mapping);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * First of {@code value} or {@code path}, like the runtime scan.
+     */
+    private String mappingPath(Element element, String mapping) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(mapping)) {
+                continue;
+            }
+
+            String value = firstOf(mirror, "value");
+            return !value.trim().isEmpty() ? value : firstOf(mirror, "path");
+        }
+        return "";
+    }
+
+    private String firstOf(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                Object value = entry.getValue().getValue();
+                if (value instanceof List && !((List<?>) value).isEmpty()) {
+                    Object v = ((AnnotationValue) ((List<?>) value).get(0)).getValue();
+                    return v == null ? "" : v.toString();
+                }
+            }
+        }
+        return "";
+    }
+
+    private String normalizePath(String classBase, String methodPath) {
+        String base = classBase == null ? "" : classBase;
+        String m = methodPath == null ? "" : methodPath;
+        if (!base.startsWith("/")) {
+            base = "/" + base;
+        }
+
+        if (base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+
+        if (!m.startsWith("/")) {
+            m = "/" + m;
+        }
+
+        return base + m;
+    }
+
+    private boolean hasAnnotation(Element element, String annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same rule as spring mvc: {@code @Validated} or any annotation whose name starts with "Valid".
+     */
+    private boolean isValidated(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(VALIDATED) || type.getSimpleName().toString().startsWith("Valid")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String flatName(TypeElement type) {
+        Element enclosing = type.getEnclosingElement();
+        if (enclosing instanceof TypeElement) {
+            return flatName((TypeElement) enclosing) + "_" + type.getSimpleName();
+        }
+        return type.getSimpleName().toString();
+    }
+
+    private String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Merge with the entries of earlier incremental runs still present in the output.
+     */
+    private void writeServiceFile() {
+        if (generatedClasses.isEmpty()) {
+            return;
+        }
+
+        Set<String> entries = new TreeSet<>(generatedClasses);
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            for (String line : existing.getCharContent(true).toString().split("\n")) {
+                String entry = line.trim();
+                if (!entry.isEmpty() && elements.getTypeElement(entry) != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            // no earlier file
+        }
+
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "[MCP] Write " + SERVICE_FILE + " failed: " + e);
+        }
+    }
+}
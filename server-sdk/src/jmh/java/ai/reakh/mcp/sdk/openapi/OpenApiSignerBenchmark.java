@@ -0,0 +1,92 @@
+package ai.reakh.mcp.sdk.openapi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.*;
+
+import jakarta.xml.bind.DatatypeConverter;
+
+/**
+ * Signing and verifying the common parameters of a request, as the session managers do on every request: the
+ * {@code legacy*} benchmarks are the implementation before the Mac prototypes and the map-free path, kept here as the
+ * baseline.
+ *
+ * <pre>
+ * gradle :server-sdk:jmh -Pjmh.include=OpenApiSignerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenApiSignerBenchmark {
+
+    private static final String ALGORITHM_NAME = "HmacSHA1";
+
+    private String              accessKeyId;
+
+    private String              accessKeySecret;
+
+    private String              signatureNonce;
+
+    private String              stringToSign;
+
+    private String              signature;
+
+    @Setup
+    public void setUp() {
+        accessKeyId = "ak-" + UUID.randomUUID();
+        accessKeySecret = "sk-" + UUID.randomUUID();
+        signatureNonce = UUID.randomUUID().toString();
+        stringToSign = OpenApiSigner.composeStringToSign(commonParams());
+        signature = OpenApiSigner.signString(stringToSign, accessKeySecret);
+    }
+
+    @Benchmark
+    public String legacySignString() throws GeneralSecurityException {
+        return legacySign(stringToSign, accessKeySecret);
+    }
+
+    @Benchmark
+    public String signString() {
+        return OpenApiSigner.signString(stringToSign, accessKeySecret);
+    }
+
+    @Benchmark
+    public boolean legacyVerify() throws GeneralSecurityException {
+        return legacySign(OpenApiSigner.composeStringToSign(commonParams()), accessKeySecret).equals(signature);
+    }
+
+    @Benchmark
+    public boolean verifyCommonParams() {
+        return OpenApiSigner.verifyCommonParams(accessKeyId, ALGORITHM_NAME, signatureNonce, signature, accessKeySecret);
+    }
+
+    private Map<String, String> commonParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("AccessKeyId", accessKeyId);
+        params.put("SignatureMethod", ALGORITHM_NAME);
+        params.put("SignatureNonce", signatureNonce);
+        return params;
+    }
+
+    /**
+     * {@code OpenApiSigner.signString} before the Mac prototypes: provider lookup and key schedule on every call.
+     */
+    private static String legacySign(String stringToSign, String accessKeySecret) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM_NAME);
+        mac.init(new SecretKeySpec(accessKeySecret.getBytes(UTF_8), ALGORITHM_NAME));
+        return DatatypeConverter.printBase64Binary(mac.doFinal(stringToSign.getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,308 @@
+package ai.reakh.mcp.sdk;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import ai.reakh.mcp.sdk.mcp.McpI18nProxy;
+import ai.reakh.mcp.sdk.openapi.OpenApiSigner;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches {@link UserMcpSdk#fetchByAccessKey(String)} of another sdk, which both session managers call on every
+ * request:
+ * <ul>
+ * <li>bounded in size and by a TTL,</li>
+ * <li>unknown keys are cached too, apart and shorter, so a flood of bad keys neither reaches the delegate nor evicts
+ * valid users,</li>
+ * <li>concurrent misses of one key share a single lookup,</li>
+ * <li>entries used after {@link #refreshAfterMillis} are reloaded in the background while the cached value keeps being
+ * served, so hot keys never expire on a request thread.</li>
+ * </ul>
+ * Call {@link #invalidate(String)} when a key is rotated or revoked.
+ *
+ * <pre>
+ * &#64;Bean
+ * public UserMcpSdk userMcpSdk(MyUserMcpSdk delegate) {
+ *     return new CachingUserMcpSdk(delegate);
+ * }
+ * </pre>
+ */
+@Slf4j
+public class CachingUserMcpSdk implements UserMcpSdk {
+
+    private static final Comparator<Entry>                            BY_EXPIRY          = Comparator.<Entry> comparingLong(e -> e.expireAt)
+        .thenComparingLong(e -> e.seq);
+
+    private static final AtomicLong                                   SEQUENCE           = new AtomicLong();
+
+    private static final ThreadPoolExecutor                           REFRESH_EXECUTOR   = createRefreshExecutor();
+
+    private final UserMcpSdk                                          delegate;
+
+    private final ConcurrentHashMap<String, Entry>                    users              = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Entry>                    unknownKeys        = new ConcurrentHashMap<>();
+
+    /**
+     * Entries of {@link #users} and {@link #unknownKeys} in expiry order, the first one goes when a map is full.
+     */
+    private final ConcurrentSkipListSet<Entry>                        usersByExpiry      = new ConcurrentSkipListSet<>(BY_EXPIRY);
+
+    private final ConcurrentSkipListSet<Entry>                        unknownByExpiry    = new ConcurrentSkipListSet<>(BY_EXPIRY);
+
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> loading            = new ConcurrentHashMap<>();
+
+    @Setter
+    private int                                                       maxSize            = 10000;
+
+    @Setter
+    private long                                                      ttlMillis          = 5 * 60 * 1000L;
+
+    /**
+     * Reload entries in the background once they are this old and still used, should be below {@link #ttlMillis}.
+     */
+    @Setter
+    private long                                                      refreshAfterMillis = 4 * 60 * 1000L;
+
+    @Setter
+    private int                                                       maxUnknownSize     = 10000;
+
+    @Setter
+    private long                                                      unknownTtlMillis   = 30 * 1000L;
+
+    /**
+     * Bumped by every invalidation, lookups started before one are returned but not cached.
+     */
+    private final AtomicLong                                          generation         = new AtomicLong();
+
+    private final LongAdder                                           hits               = new LongAdder();
+
+    private final LongAdder                                           misses             = new LongAdder();
+
+    private final LongAdder                                           refreshes          = new LongAdder();
+
+    private final LongAdder                                           evictions          = new LongAdder();
+
+    public CachingUserMcpSdk(UserMcpSdk delegate){
+        this.delegate = delegate;
+    }
+
+    @Override
+    public UserInfo fetchByAccessKey(String accessKey) {
+        if (accessKey == null) {
+            return delegate.fetchByAccessKey(null);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = users.get(accessKey);
+        if (entry == null) {
+            entry = unknownKeys.get(accessKey);
+        }
+
+        if (entry != null && now < entry.expireAt) {
+            hits.increment();
+            if (entry.user != null && now >= entry.refreshAt) {
+                refreshAhead(accessKey, entry);
+            }
+            return entry.user;
+        }
+
+        misses.increment();
+        return load(accessKey).user;
+    }
+
+    @Override
+    public McpI18nProxy getI18nProxy() {
+        return delegate.getI18nProxy();
+    }
+
+    /**
+     * Drop the cached lookup of a key, e.g. after it was rotated or revoked. The next request reads it again.
+     */
+    public void invalidate(String accessKey) {
+        generation.incrementAndGet();
+        evictSecret(remove(users, usersByExpiry, accessKey));
+        remove(unknownKeys, unknownByExpiry, accessKey);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        users.values().forEach(this::evictSecret);
+        users.clear();
+        usersByExpiry.clear();
+        unknownKeys.clear();
+        unknownByExpiry.clear();
+    }
+
+    public int size() {
+        return users.size() + unknownKeys.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Look the key up once for all concurrent callers.
+     */
+    private Entry load(String accessKey) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = loading.putIfAbsent(accessKey, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            Entry entry = fetch(accessKey);
+            mine.complete(entry);
+            return entry;
+        } catch (RuntimeException | Error e) {
+            // failures are not cached, the next request tries again
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(accessKey, mine);
+        }
+    }
+
+    private Entry fetch(String accessKey) {
+        long gen = generation.get();
+        UserInfo user = delegate.fetchByAccessKey(accessKey);
+        long now = System.currentTimeMillis();
+        Entry entry;
+        if (generation.get() != gen) {
+            // may have read the key before it was rotated
+            entry = new Entry(accessKey, user, now, Long.MAX_VALUE);
+        } else if (user != null) {
+            entry = new Entry(accessKey, user, now + ttlMillis, now + refreshAfterMillis);
+            remove(unknownKeys, unknownByExpiry, accessKey);
+            Entry previous = users.get(accessKey);
+            put(users, usersByExpiry, entry, maxSize);
+            if (previous != null && previous.user != null && !Objects.equals(previous.user.getSecretKey(), user.getSecretKey())) {
+                // secret rotated, its signing key state is of no use anymore
+                evictSecret(previous);
+            }
+        } else {
+            entry = new Entry(accessKey, null, now + unknownTtlMillis, Long.MAX_VALUE);
+            remove(users, usersByExpiry, accessKey);
+            put(unknownKeys, unknownByExpiry, entry, maxUnknownSize);
+        }
+        return entry;
+    }
+
+    private void evictSecret(Entry entry) {
+        if (entry != null && entry.user != null) {
+            OpenApiSigner.evict(entry.user.getSecretKey());
+        }
+    }
+
+    private void refreshAhead(String accessKey, Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            REFRESH_EXECUTOR.execute(() -> {
+                try {
+                    fetch(accessKey);
+                    refreshes.increment();
+                } catch (RuntimeException e) {
+                    // keep serving the current value until it expires
+                    entry.refreshing.set(false);
+                    log.warn("[MCP] Refresh user of access key failed,msg:{}", ExceptionUtils.getRootCauseMessage(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void put(ConcurrentHashMap<String, Entry> map, ConcurrentSkipListSet<Entry> byExpiry, Entry entry, int max) {
+        byExpiry.add(entry);
+        Entry previous = map.put(entry.accessKey, entry);
+        if (previous != null) {
+            byExpiry.remove(previous);
+        }
+
+        while (map.size() > max) {
+            // expired entries come first, then the ones closest to expiry
+            Entry victim = byExpiry.pollFirst();
+            if (victim == null) {
+                return;
+            }
+            // an entry replaced or removed meanwhile is just dropped from the order
+            if (map.remove(victim.accessKey, victim)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private Entry remove(ConcurrentHashMap<String, Entry> map, ConcurrentSkipListSet<Entry> byExpiry, String accessKey) {
+        Entry removed = map.remove(accessKey);
+        if (removed != null) {
+            byExpiry.remove(removed);
+        }
+        return removed;
+    }
+
+    private static ThreadPoolExecutor createRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1024), r -> {
+            Thread t = new Thread(r, "mcp-user-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static class Entry {
+
+        private final String        accessKey;
+
+        /**
+         * Null for an unknown access key.
+         */
+        private final UserInfo      user;
+
+        private final long          expireAt;
+
+        private final long          refreshAt;
+
+        /**
+         * Tells apart entries expiring at the same millisecond.
+         */
+        private final long          seq        = SEQUENCE.incrementAndGet();
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(String accessKey, UserInfo user, long expireAt, long refreshAt){
+            this.accessKey = accessKey;
+            this.user = user;
+            this.expireAt = expireAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
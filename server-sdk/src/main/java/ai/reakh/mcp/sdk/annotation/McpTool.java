@@ -5,6 +5,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import ai.reakh.mcp.sdk.constants.McpResultFormat;
+
 @Target({ ElementType.METHOD, ElementType.TYPE })
 @Retention(RetentionPolicy.RUNTIME)
 public @interface McpTool {
@@ -12,4 +14,48 @@ public @interface McpTool {
     String name() default "";
 
     String value();
+
+    /**
+     * Max concurrent calls of this tool, calls over the limit are rejected right away. 0 means unlimited.
+     */
+    int maxConcurrency() default 0;
+
+    /**
+     * Adapt the concurrency limit to the observed latency (AIMD), bounded by {@link #maxConcurrency()} if set.
+     */
+    boolean adaptiveConcurrency() default false;
+
+    /**
+     * Time budget of one call in millis, the client may shorten it through {@code _meta}. 0 means the sdk default.
+     */
+    long timeoutMillis() default 0;
+
+    /**
+     * Cache successful results for this many millis, keyed by arguments and tenant. Only for read-only tools. 0 means
+     * no caching.
+     */
+    long cacheTtlMillis() default 0;
+
+    /**
+     * Let identical concurrent calls (same tenant and arguments) share one execution. Only for idempotent tools.
+     */
+    boolean coalesce() default false;
+
+    /**
+     * Return the result as MCP {@code structuredContent}, embedded as raw JSON, and advertise an {@code outputSchema}
+     * derived from the method return type. Only for methods returning an object.
+     */
+    boolean structured() default false;
+
+    /**
+     * Default field selection applied to JSON results, dot separated paths such as {@code "items.id"}; arrays are
+     * traversed transparently. Clients override it through {@code _meta.fields}, an empty list returns everything.
+     */
+    String[] fields() default {};
+
+    /**
+     * Render results which are arrays of flat objects as a header plus rows instead of JSON, for large list tools.
+     * Other shapes are returned as JSON anyway.
+     */
+    McpResultFormat resultFormat() default McpResultFormat.JSON;
 }
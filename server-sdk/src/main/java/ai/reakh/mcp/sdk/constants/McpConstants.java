@@ -9,4 +9,16 @@ public interface McpConstants {
     String MCP_API_REQUEST_SK = "MCP_API_REQUEST_SK";
 
     String MCP_API_REQUEST_API_HOST = "MCP_API_REQUEST_API_HOST";
+
+    String MCP_API_REQUEST_TENANT = "MCP_API_REQUEST_TENANT";
+
+    String MCP_API_REQUEST_USER = "MCP_API_REQUEST_USER";
+
+    String MCP_API_PROGRESS_REPORTER = "MCP_API_PROGRESS_REPORTER";
+
+    String MCP_SESSION_ID_HEADER = "Mcp-Session-Id";
+
+    String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    String ETAG_HEADER = "ETag";
 }
@@ -0,0 +1,20 @@
+package ai.reakh.mcp.sdk.constants;
+
+/**
+ * How the text of a tool result is rendered. The tabular formats only apply to JSON arrays of flat objects, other
+ * results stay JSON.
+ */
+public enum McpResultFormat {
+    JSON,
+
+    /**
+     * Header line, then one line per object; tabs, line breaks and backslashes in values are escaped as {@code \t},
+     * {@code \n}, {@code \r} and {@code \\}.
+     */
+    TSV,
+
+    /**
+     * RFC 4180: header line, then one line per object, values quoted when needed.
+     */
+    CSV
+}
@@ -0,0 +1,63 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * The http request as seen by one call of a JSON-RPC batch. Attributes set by the call stay in the call, so calls
+ * running in parallel do not overwrite each other's request id, deadline or progress reporter; the attributes of the
+ * http request, e.g. the verified caller, are read through.
+ */
+class McpCallRequest extends HttpServletRequestWrapper {
+
+    private static final Object       REMOVED    = new Object();
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    McpCallRequest(HttpServletRequest request){
+        super(request);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        Object value = attributes.get(name);
+        if (value == null) {
+            return super.getAttribute(name);
+        }
+        return value == REMOVED ? null : value;
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        Set<String> names = new LinkedHashSet<>(Collections.list(super.getAttributeNames()));
+        attributes.forEach((name, value) -> {
+            if (value == REMOVED) {
+                names.remove(name);
+            } else {
+                names.add(name);
+            }
+        });
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.put(name, REMOVED);
+    }
+}
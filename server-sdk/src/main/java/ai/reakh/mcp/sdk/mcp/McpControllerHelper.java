@@ -1,77 +1,273 @@
 package ai.reakh.mcp.sdk.mcp;
 
 import static ai.reakh.mcp.sdk.constants.McpConstants.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
 import ai.reakh.mcp.sdk.UserMcpSdk;
 import ai.reakh.mcp.sdk.annotation.McpApiProvider;
 import ai.reakh.mcp.sdk.annotation.McpTool;
 import ai.reakh.mcp.sdk.constants.McpClientMethod;
+import ai.reakh.mcp.sdk.constants.McpResultFormat;
+import ai.reakh.mcp.sdk.mcp.exception.McpRpcException;
+import ai.reakh.mcp.sdk.mcp.exception.ServerException;
 import ai.reakh.mcp.sdk.mcp.model.McpProtocolBase;
+import ai.reakh.mcp.sdk.mcp.model.request.CancelledParams;
 import ai.reakh.mcp.sdk.mcp.model.request.McpRequest;
 import ai.reakh.mcp.sdk.mcp.model.request.ToolCallParams;
+import ai.reakh.mcp.sdk.mcp.model.request.ToolsListParams;
 import ai.reakh.mcp.sdk.mcp.model.response.*;
+import ai.reakh.mcp.sdk.mcp.tool.McpGeneratedTool;
+import ai.reakh.mcp.sdk.mcp.tool.McpGeneratedTools;
+import ai.reakh.mcp.sdk.mcp.tool.McpInFlightCalls;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolArgumentBinder;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolCallCoalescer;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolDefinition;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolExecutor;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolLimiter;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolResultCache;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolResultProjection;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolResultRenderer;
 import ai.reakh.mcp.sdk.openapi.OpenApiHttpClient;
+import ai.reakh.mcp.sdk.openapi.OpenApiSessionManager;
 import ai.reakh.mcp.sdk.utils.JacksonHelper;
-import ai.reakh.mcp.sdk.utils.Json;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
 
 @Component
 @Slf4j
 public class McpControllerHelper {
 
-    private static final Integer OPEN_API_TIME_OUT = 120;
+    private static final Integer             OPEN_API_TIME_OUT        = 120;
+
+    private static final String              TOOL_PROVIDER_PREFIX     = "tool:";
+
+    /**
+     * Current tool snapshot, replaced as a whole on every change. Request threads read it without locking.
+     */
+    private volatile McpToolRegistry         registry;
+
+    /**
+     * Serializes registry changes, readers never take it.
+     */
+    private final ReentrantLock              registryLock             = new ReentrantLock();
+
+    private InitializeResult                 initResult;
+
+    private Map<String, Object>              pongResult;
+
+    /**
+     * Results of initialize and ping encoded once in {@link #initTools()}, they never change afterwards.
+     */
+    private McpPreEncodedResponse.Encoded    encodedInitResult;
+
+    private McpPreEncodedResponse.Encoded    encodedPongResult;
+
+    private ObjectMapper                     toolMapper;
+
+    private ObjectReader                     callParamsReader;
+
+    private ObjectReader                     cancelledParamsReader;
+
+    private ObjectReader                     listParamsReader;
+
+    private ObjectReader                     requestReader;
+
+    private ObjectReader                     batchReader;
+
+    /**
+     * Single line json, usable for SSE data frames.
+     */
+    @Getter
+    private ObjectWriter                     responseWriter;
+
+    /**
+     * Call tools living in this process through their pre-bound method handles instead of an http loopback. Tools
+     * which can not be called directly still go through {@link OpenApiHttpClient}.
+     * <p>
+     * A direct call is not a spring mvc request: no {@code HandlerInterceptor} runs, so neither the signature nor the
+     * nonce checks of {@code OpenApiSessionManager} (the MCP request itself was authenticated), and exceptions of the
+     * tool are not mapped by {@code @ControllerAdvice}, they become error results. Tools whose body is
+     * {@code @Valid}/{@code @Validated} always stay on the http path so their validation is kept.
+     */
+    @Setter
+    private boolean                          directInvoke             = false;
+
+    /**
+     * Max calls of JSON-RPC batches running at the same time on the platform pool, across all batches of this node.
+     */
+    @Setter
+    private int                              batchParallelism         = 8;
+
+    /**
+     * Upstream results larger than this, or of unknown length, are streamed into the response by
+     * {@link #handleStreamingRequest(McpRequest, HttpServletRequest)} instead of being buffered. Negative disables it.
+     */
+    @Setter
+    private long                             streamThresholdBytes     = 256 * 1024;
+
+    /**
+     * Upstream bytes kept while a result is projected or rendered as a table, so a body which turns out not to be
+     * valid JSON, or not tabular, is returned whole as the plain path does. Larger ones give an error result.
+     */
+    @Setter
+    private int                              projectionRecoveryBytes  = 1024 * 1024;
+
+    /**
+     * Repeat results of {@link McpTool#structured()} tools as a text block, as the MCP spec asks for clients which only
+     * read {@code content}. A streamed result can not carry the copy, so structured results are buffered while this is
+     * on; turn it off to stream large ones when all clients read {@code structuredContent}.
+     */
+    @Setter
+    private boolean                          structuredContentText    = true;
+
+    /**
+     * Tools per tools/list page, clients follow {@code nextCursor} for the rest. 0 returns the whole catalog at once.
+     */
+    @Setter
+    private int                              toolsListPageSize        = 0;
 
-    private Map<String, String>  toolApi           = new HashMap<>();
+    /**
+     * Scan the providers in parallel on a fork-join pool and build the tool schemas on the first tools/list instead
+     * of at startup.
+     */
+    @Setter
+    private boolean                          fastStartup              = false;
 
-    private ToolsListResult      toolsListResult   = new ToolsListResult(Collections.emptyList(), null);
+    /**
+     * Register providers from the tool metadata generated at build time by the sdk annotation processor when it is on
+     * the classpath, instead of scanning them with reflection.
+     */
+    @Setter
+    private boolean                          generatedTools           = true;
 
-    private InitializeResult     initResult;
+    private Map<Class<?>, McpGeneratedTools> generatedToolsByProvider = Collections.emptyMap();
 
-    private Map<String, Object>  pongResult;
+    /**
+     * Run tool calls on virtual threads (Java 21+ runtime), at most {@link #virtualThreadConcurrency} at once: the
+     * blocking upstream call of every tools/call, sync or async, batched or not. {@link McpStreamableHttpTransport}
+     * then also hands the container thread back and serves the request on a virtual thread.
+     */
+    @Setter
+    private boolean                          virtualThreads           = false;
+
+    @Setter
+    private int                              virtualThreadConcurrency = 1024;
+
+    private McpToolExecutor                  toolExecutor;
+
+    /**
+     * Byte budget of the result cache shared by all tools with {@link McpTool#cacheTtlMillis()}.
+     */
+    @Setter
+    private long                             resultCacheMaxBytes      = 64L * 1024 * 1024;
+
+    @Getter
+    private McpToolResultCache               resultCache;
+
+    @Getter
+    private final McpToolCallCoalescer       coalescer                = new McpToolCallCoalescer();
+
+    private ObjectWriter                     canonicalWriter;
+
+    private final LongAdder                  projectedCalls           = new LongAdder();
+
+    private final LongAdder                  projectionSavedBytes     = new LongAdder();
+
+    @Getter
+    private final McpInFlightCalls           inFlightCalls            = new McpInFlightCalls();
 
     @Resource
-    private ApplicationContext   context;
+    private ApplicationContext               context;
 
     @Resource
-    private UserMcpSdk           userMcpSdk;
+    private UserMcpSdk                       userMcpSdk;
 
     public void initTools() {
         log.info("[MCP] Tools loading...");
+        long start = System.nanoTime();
 
         Map<String, Object> providers = context.getBeansWithAnnotation(McpApiProvider.class);
+        if (generatedTools) {
+            this.generatedToolsByProvider = McpGeneratedTools.load(context.getClassLoader());
+        }
 
-        List<ToolsListResult.ToolDesc> tools = new ArrayList<>();
-        Map<String, String> api = new HashMap<>();
-        for (Object bean : providers.values()) {
-            try {
-                initToolInner(bean, tools, api);
-            } catch (Exception e) {
-                String error = "[MPC] Tools init failed,but ignore it.msg:" + ExceptionUtils.getRootCauseMessage(e);
-                log.error(error, e);
-                throw new IllegalStateException(error, e);
+        this.toolMapper = context.getBeanProvider(ObjectMapper.class)
+            .getIfAvailable(() -> new ObjectMapper().findAndRegisterModules().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+        this.callParamsReader = toolMapper.readerFor(ToolCallParams.class);
+        this.cancelledParamsReader = toolMapper.readerFor(CancelledParams.class);
+        this.listParamsReader = toolMapper.readerFor(ToolsListParams.class);
+        this.requestReader = toolMapper.readerFor(McpRequest.class);
+        this.batchReader = toolMapper.readerFor(new TypeReference<List<McpRequest>>() {
+        });
+        this.responseWriter = toolMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.canonicalWriter = responseWriter.with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+        Map<String, List<McpToolRegistry.Entry>> tools;
+        if (fastStartup) {
+            tools = scanProvidersParallel(providers.values());
+        } else {
+            tools = new LinkedHashMap<>();
+            for (Object bean : providers.values()) {
+                tools.put(providerKey(bean), scanProviderChecked(bean));
             }
         }
 
-        this.toolApi = Collections.unmodifiableMap(api);
-        this.toolsListResult = new ToolsListResult(Collections.unmodifiableList(tools), null);
-
         InitializeResult.ServerInfo serverInfo = new InitializeResult.ServerInfo("CloudCanal-MCP", "1.0.0");
-        InitializeResult.Tools capabilitiesTools = new InitializeResult.Tools(true);
+        // nothing pushes notifications/tools/list_changed yet, there is no standalone stream to send it on; clients
+        // list again on their own, the ETag makes that cheap
+        InitializeResult.Tools capabilitiesTools = new InitializeResult.Tools(false);
         InitializeResult.Capabilities capabilities = new InitializeResult.Capabilities(capabilitiesTools);
         this.initResult = new InitializeResult("2025-06-18", capabilities, serverInfo);
 
@@ -79,10 +275,264 @@ public class McpControllerHelper {
         pong.put("ok", true);
         this.pongResult = Collections.unmodifiableMap(pong);
 
-        log.info("[MCP] Tools loaded: {}", this.toolApi.keySet());
+        try {
+            this.encodedInitResult = McpPreEncodedResponse.Encoded.of(responseWriter, initResult);
+            this.encodedPongResult = McpPreEncodedResponse.Encoded.of(responseWriter, pongResult);
+            this.registry = McpToolRegistry.of(tools, toolsListPageSize, responseWriter, fastStartup);
+        } catch (IOException e) {
+            throw new IllegalStateException("[MCP] Encode static results failed.", e);
+        }
+
+        if (this.resultCache == null) {
+            this.resultCache = new McpToolResultCache(resultCacheMaxBytes);
+        }
+
+        if (this.toolExecutor == null) {
+            this.toolExecutor = virtualThreads ? McpToolExecutor.virtual(virtualThreadConcurrency, batchParallelism) : McpToolExecutor.platform(batchParallelism);
+        }
+
+        long costMillis = (System.nanoTime() - start) / 1_000_000;
+        if (registry.isCatalogBuilt()) {
+            McpToolsCatalog catalog = registry.getCatalog();
+            log.info("[MCP] Tools loaded in {} ms: {}, tools/list size: {} bytes, etag: {}", costMillis, registry.getToolNames(), catalog.getSize(), catalog.getEtag());
+        } else {
+            log.info("[MCP] Tools loaded in {} ms, schemas deferred to first tools/list: {}", costMillis, registry.getToolNames());
+        }
+    }
+
+    /**
+     * Scan the providers on a fork-join pool, results keep the provider order. The workers get the application class
+     * loader as context class loader, the common pool's would not see the classes of a fat jar or a web app.
+     */
+    private Map<String, List<McpToolRegistry.Entry>> scanProvidersParallel(Collection<Object> beans) {
+        ClassLoader classLoader = context.getClassLoader() != null ? context.getClassLoader() : Thread.currentThread().getContextClassLoader();
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("mcp-tool-scan-" + thread.getPoolIndex());
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        };
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(beans.size(), Runtime.getRuntime().availableProcessors())), threadFactory, null, false);
+        try {
+            List<ForkJoinTask<List<McpToolRegistry.Entry>>> tasks = new ArrayList<>(beans.size());
+            for (Object bean : beans) {
+                tasks.add(pool.submit(() -> scanProviderChecked(bean)));
+            }
+
+            Map<String, List<McpToolRegistry.Entry>> tools = new LinkedHashMap<>();
+            Iterator<Object> it = beans.iterator();
+            for (ForkJoinTask<List<McpToolRegistry.Entry>> task : tasks) {
+                tools.put(providerKey(it.next()), task.join());
+            }
+            return tools;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<McpToolRegistry.Entry> scanProviderChecked(Object bean) {
+        try {
+            return scanProvider(bean);
+        } catch (Exception e) {
+            String error = "[MPC] Tools init failed,but ignore it.msg:" + ExceptionUtils.getRootCauseMessage(e);
+            log.error(error, e);
+            throw new IllegalStateException(error, e);
+        }
+    }
+
+    /**
+     * Scan one {@link McpApiProvider} bean again and swap its tools in, e.g. after the bean was refreshed. The tools
+     * of the other providers are left untouched; calls already running keep the definitions they started with.
+     */
+    public void registerProvider(Object bean) {
+        String provider = providerKey(bean);
+        List<McpToolRegistry.Entry> entries = scanProvider(bean);
+        publish(r -> r.withProvider(provider, entries));
+        log.info("[MCP] Tools of {} registered: {}", provider, toolNames(entries));
+    }
+
+    public void unregisterProvider(Object bean) {
+        String provider = providerKey(bean);
+        publish(r -> r.withoutProvider(provider));
+        log.info("[MCP] Tools of {} unregistered.", provider);
+    }
+
+    /**
+     * Register a single tool which is not declared through {@link McpTool}, e.g. one served by another process.
+     * Registering a name again replaces the tool.
+     */
+    public void registerTool(McpToolDefinition tool, ToolsListResult.ToolDesc desc) {
+        String provider = TOOL_PROVIDER_PREFIX + tool.getName();
+        publish(r -> r.withProvider(provider, Collections.singletonList(new McpToolRegistry.Entry(tool, desc))));
+        log.info("[MCP] Tool {} registered.", tool.getName());
+    }
+
+    public void unregisterTool(String name) {
+        publish(r -> r.withoutProvider(TOOL_PROVIDER_PREFIX + name));
+        log.info("[MCP] Tool {} unregistered.", name);
+    }
+
+    public Set<String> getToolNames() {
+        return registry.getToolNames();
+    }
+
+    /**
+     * Build the next snapshot from the current one and publish it. Cached results may belong to a tool which just
+     * changed, so the result cache is dropped.
+     */
+    private void publish(RegistryChange change) {
+        registryLock.lock();
+        try {
+            if (registry == null) {
+                throw new IllegalStateException("[MCP] Tools are not initialized yet, call initTools first.");
+            }
+            this.registry = change.apply(registry);
+        } catch (IOException e) {
+            throw new IllegalStateException("[MCP] Encode tool list failed.", e);
+        } finally {
+            registryLock.unlock();
+        }
+
+        if (resultCache != null) {
+            resultCache.invalidateAll();
+        }
+    }
+
+    private String providerKey(Object bean) {
+        return ClassUtils.getUserClass(bean).getName();
+    }
+
+    private List<String> toolNames(List<McpToolRegistry.Entry> entries) {
+        List<String> names = new ArrayList<>(entries.size());
+        for (McpToolRegistry.Entry entry : entries) {
+            names.add(entry.getDefinition().getName());
+        }
+        return names;
+    }
+
+    private interface RegistryChange {
+
+        McpToolRegistry apply(McpToolRegistry current) throws IOException;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (toolExecutor != null) {
+            toolExecutor.shutdown();
+        }
+    }
+
+    McpToolExecutor getToolExecutor() {
+        return toolExecutor;
+    }
+
+    /**
+     * Content hash of the current tool catalog, suitable as {@code ETag} of tools/list responses.
+     */
+    public String getToolsListEtag() {
+        return registry.getCatalog().getEtag();
+    }
+
+    /**
+     * Content hash of the catalog a tools/list response was taken from, the {@code ETag} to send with it.
+     *
+     * @return null if the response is no tools/list result.
+     */
+    public String getToolsListEtag(McpProtocolBase resp) {
+        return resp instanceof McpToolsListResponse ? ((McpToolsListResponse) resp).getCatalog().getEtag() : null;
+    }
+
+    /**
+     * @return true if the response tells the client its cached tool catalog is still current.
+     */
+    public boolean isToolsListUnchanged(McpProtocolBase resp) {
+        return resp instanceof McpToolsListResponse && ((McpToolsListResponse) resp).isUnchanged();
+    }
+
+    /**
+     * Handle a JSON-RPC batch. The whole batch shares the single authentication done by {@link McpSessionManager} for
+     * the http request, calls run in parallel on a bounded executor and responses keep the request order. Each call
+     * sees the http request through its own attributes. Notifications are executed but produce no entry.
+     *
+     * @return null if the batch only holds notifications, the http response has no body then.
+     */
+    public List<McpProtocolBase> handleBatchRequest(List<McpRequest> reqs, HttpServletRequest request) {
+        if (reqs == null || reqs.isEmpty()) {
+            McpError err = new McpError(McpError.INVALID_REQUEST, "Empty batch");
+            return Collections.singletonList(new McpErrorResponse(null, err));
+        }
+
+        if (reqs.size() == 1) {
+            McpRequest req = reqs.get(0);
+            McpProtocolBase resp = handleRequest(req, request);
+            return isNotification(req) ? null : Collections.singletonList(resp);
+        }
+
+        List<Future<McpProtocolBase>> futures = new ArrayList<>(reqs.size());
+        for (McpRequest req : reqs) {
+            HttpServletRequest callRequest = new McpCallRequest(request);
+            futures.add(toolExecutor.submit(callRequest, () -> handleRequest(req, callRequest)));
+        }
+
+        List<McpProtocolBase> responses = new ArrayList<>(reqs.size());
+        for (int i = 0; i < reqs.size(); i++) {
+            McpRequest req = reqs.get(i);
+            McpProtocolBase resp;
+            try {
+                resp = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                McpError err = new McpError(McpError.INTERNAL_ERROR, "Batch interrupted");
+                resp = new McpErrorResponse(req == null ? null : req.getId(), err);
+            } catch (ExecutionException e) {
+                McpError err = new McpError(McpError.INTERNAL_ERROR, "Internal error: " + ExceptionUtils.getRootCauseMessage(e));
+                resp = new McpErrorResponse(req == null ? null : req.getId(), err);
+            }
+
+            if (!isNotification(req)) {
+                responses.add(resp);
+            }
+        }
+        return responses.isEmpty() ? null : responses;
+    }
+
+    /**
+     * Read a request body, a single message or a batch.
+     *
+     * @return a {@link McpRequest}, or a list of them for a batch.
+     */
+    Object readMessage(TokenBuffer body) throws IOException {
+        if (body.firstToken() == JsonToken.START_ARRAY) {
+            return batchReader.readValue(body.asParser());
+        }
+        return requestReader.readValue(body.asParser());
+    }
+
+    private boolean isNotification(McpRequest req) {
+        return req != null && req.getId() == null;
     }
 
     public McpProtocolBase handleRequest(McpRequest req, HttpServletRequest request) {
+        return handleRequest(req, request, false);
+    }
+
+    /**
+     * Same as {@link #handleRequest(McpRequest, HttpServletRequest)}, except that a large upstream result of a
+     * tools/call is not buffered: the response holds the open upstream body and copies it into the output while being
+     * serialized, so memory stays bounded by the generator buffer whatever the result size. The caller must serialize
+     * the response exactly once, straight into the servlet output. Cached and coalesced tools are always buffered.
+     * <p>
+     * The call, its permit and its cancel registration last until the body is written: the tool latency includes
+     * the transfer. The status line is sent before the upstream body is read, an upstream failing mid-stream can no
+     * longer be turned into an error response; the output just ends, the client gets a truncated, invalid JSON
+     * document and a warning is logged.
+     */
+    public McpProtocolBase handleStreamingRequest(McpRequest req, HttpServletRequest request) {
+        return handleRequest(req, request, streamThresholdBytes >= 0);
+    }
+
+    private McpProtocolBase handleRequest(McpRequest req, HttpServletRequest request, boolean streaming) {
         if (req == null) {
             McpError err = new McpError(McpError.INTERNAL_ERROR, "Empty request");
             return new McpErrorResponse(null, err);
@@ -94,21 +544,48 @@ public class McpControllerHelper {
         try {
             switch (method) {
                 case INITIALIZE: {
-                    return new McpResponse(String.valueOf(id), initResult);
+                    return new McpPreEncodedResponse(String.valueOf(id), encodedInitResult);
                 }
                 case PING: {
-                    return new McpResponse(String.valueOf(id), pongResult);
+                    return new McpPreEncodedResponse(String.valueOf(id), encodedPongResult);
                 }
                 case TOOLS_LIST: {
-                    return new McpResponse(String.valueOf(id), toolsListResult);
+                    ToolsListParams listParams = readParams(req, listParamsReader, ToolsListParams.class);
+                    String cursor = listParams != null ? listParams.getCursor() : null;
+                    McpToolsCatalog catalog = registry.getCatalog();
+                    boolean unchanged = cursor == null && catalog.matches(request.getHeader(IF_NONE_MATCH_HEADER));
+                    return new McpToolsListResponse(String.valueOf(id), catalog, cursor, unchanged);
                 }
                 case TOOLS_CALL: {
-                    String host = (String) request.getAttribute(MCP_API_REQUEST_API_HOST);
-                    String ak = (String) request.getAttribute(MCP_API_REQUEST_AK);
-                    String sk = (String) request.getAttribute(MCP_API_REQUEST_SK);
-                    Object params = req.getParams();
-                    ToolCallParams callParams = JacksonHelper.convert(params, ToolCallParams.class);
-                    return handleToolCall(id, host, ak, sk, callParams);
+                    ToolCallParams callParams = readCallParams(req);
+                    McpInFlightCalls.Registration call = inFlightCalls.register(inFlightKey(request, id));
+                    McpResponse response = null;
+                    try {
+                        response = runToolCall(id, request, callParams, call, streaming);
+                        return response;
+                    } catch (Exception e) {
+                        if (call.isCancelled()) {
+                            return cancelledResponse(id);
+                        }
+                        if (call.isExpired()) {
+                            return deadlineExceededResponse(id);
+                        }
+                        throw e;
+                    } finally {
+                        // a streamed result closes the registration once its body is written
+                        if (!isStreamed(response)) {
+                            call.close();
+                        }
+                    }
+                }
+                case NOTIFICATION_CANCELLED: {
+                    CancelledParams cancelParams = readParams(req, cancelledParamsReader, CancelledParams.class);
+                    if (cancelParams != null && cancelParams.getRequestId() != null) {
+                        boolean hit = inFlightCalls.cancel(inFlightKey(request, cancelParams.getRequestId()));
+                        log.info("[MCP] Cancel request {},in flight:{},reason:{}", cancelParams.getRequestId(), hit, cancelParams.getReason());
+                    }
+                    // notifications have no response
+                    return null;
                 }
                 default: {
                     McpError err = new McpError(McpError.METHOD_NOT_FOUND, "Unknown method: " + method);
@@ -116,18 +593,624 @@ public class McpControllerHelper {
                 }
             }
         } catch (Exception e) {
-            log.warn("[MCP] Handle request error,method:{}.msg:{}", method, ExceptionUtils.getRootCauseMessage(e), e);
-            McpError err = new McpError(McpError.INTERNAL_ERROR, "Internal error: " + ExceptionUtils.getRootCauseMessage(e));
-            return new McpErrorResponse(String.valueOf(id), err);
+            return errorResponse(method, id, e);
         }
     }
 
-    private McpResponse handleToolCall(Object id, String host, String ak, String sk, ToolCallParams callParams) throws Exception {
-        String api = toolApi.get(callParams.getName());
-        if (api == null) {
+    /**
+     * Asynchronous variant of {@link #handleRequest(McpRequest, HttpServletRequest)}. Tool calls complete on OkHttp's
+     * dispatcher (http path) or on the tool executor (direct path, and every call in virtual thread mode), so the
+     * caller thread is released right away. Meant
+     * for spring mvc {@code DeferredResult} or a raw {@code AsyncContext}:
+     *
+     * <pre>
+     * DeferredResult&lt;McpProtocolBase&gt; result = new DeferredResult&lt;&gt;();
+     * mcpControllerHelper.handleRequestAsync(req, request).thenAccept(result::setResult);
+     * return result;
+     * </pre>
+     *
+     * The future never completes exceptionally, errors are turned into JSON-RPC error responses.
+     */
+    public CompletableFuture<McpProtocolBase> handleRequestAsync(McpRequest req, HttpServletRequest request) {
+        if (req == null || req.getMethod() != McpClientMethod.TOOLS_CALL) {
+            return CompletableFuture.completedFuture(handleRequest(req, request));
+        }
+
+        Object id = req.getId();
+        McpClientMethod method = req.getMethod();
+
+        McpInFlightCalls.Registration call = inFlightCalls.register(inFlightKey(request, id));
+        CompletableFuture<McpProtocolBase> future;
+        try {
+            ToolCallParams callParams = readCallParams(req);
+            future = handleToolCallAsync(id, request, callParams, call);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        // the future completes once the upstream call is really finished, aborted or not; the registration is gone
+        // before the response is out, so the client may reuse the id right away
+        CompletableFuture<McpProtocolBase> result = future.whenComplete((r, t) -> call.close()).handle((resp, t) -> {
+            if (t == null) {
+                return resp;
+            }
+            if (call.isCancelled()) {
+                return cancelledResponse(id);
+            }
+            return call.isExpired() ? deadlineExceededResponse(id) : errorResponse(method, id, t);
+        });
+        // e.g. the SSE client went away, the registration aborts the upstream call
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
+
+    private String inFlightKey(HttpServletRequest request, Object id) {
+        if (id == null) {
+            return null;
+        }
+
+        String sessionKey = request.getHeader(MCP_SESSION_ID_HEADER);
+        if (StringUtils.isBlank(sessionKey)) {
+            sessionKey = String.valueOf(request.getAttribute(MCP_API_REQUEST_AK));
+        }
+        return McpInFlightCalls.key(sessionKey, id);
+    }
+
+    private McpErrorResponse cancelledResponse(Object id) {
+        return new McpErrorResponse(String.valueOf(id), new McpError(McpError.REQUEST_CANCELLED, "Request cancelled"));
+    }
+
+    private McpErrorResponse deadlineExceededResponse(Object id) {
+        return new McpErrorResponse(String.valueOf(id), new McpError(McpRpcException.DEADLINE_EXCEEDED, "Tool call deadline exceeded"));
+    }
+
+    private McpErrorResponse errorResponse(McpClientMethod method, Object id, Throwable e) {
+        McpRpcException rpcException = ExceptionUtils.throwableOfType(e, McpRpcException.class);
+        if (rpcException != null) {
+            return new McpErrorResponse(String.valueOf(id), new McpError(rpcException.getCode(), rpcException.getMessage()));
+        }
+
+        log.warn("[MCP] Handle request error,method:{}.msg:{}", method, ExceptionUtils.getRootCauseMessage(e), e);
+        McpError err = new McpError(McpError.INTERNAL_ERROR, "Internal error: " + ExceptionUtils.getRootCauseMessage(e));
+        return new McpErrorResponse(String.valueOf(id), err);
+    }
+
+    /**
+     * In virtual thread mode the call runs on a virtual thread of the tool executor, the caller only waits for it.
+     */
+    private McpResponse runToolCall(Object id, HttpServletRequest request, ToolCallParams callParams, McpInFlightCalls.Registration registration,
+                                    boolean streaming) throws Exception {
+        if (!toolExecutor.isVirtual() || toolExecutor.isWorkerThread()) {
+            return handleToolCall(id, request, callParams, registration, streaming);
+        }
+
+        Future<McpResponse> future = toolExecutor.submit(request, () -> {
+            try {
+                return handleToolCall(id, request, callParams, registration, streaming);
+            } finally {
+                registration.unbindCurrentThread();
+            }
+        });
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private McpResponse handleToolCall(Object id, HttpServletRequest request, ToolCallParams callParams, McpInFlightCalls.Registration registration,
+                                       boolean streaming) throws Exception {
+        McpToolCall call = newToolCall(id, request, callParams, registration);
+        String callKey = callKey(call);
+        ToolCallResult cached = lookupCache(call, callKey);
+        if (cached != null) {
+            return new McpResponse(id, cached);
+        }
+
+        if (call.getTool().isCoalesce()) {
+            return new McpResponse(id, awaitShared(call, coalescer.join(callKey, () -> doSharedToolCall(call, callKey))));
+        }
+
+        // cached results need the whole text
+        boolean stream = streaming && callKey == null;
+        McpToolLimiter limiter = call.getTool().getLimiter();
+        if (limiter != null) {
+            acquirePermit(call.getTool());
+        }
+
+        long start = System.nanoTime();
+        if (stream) {
+            call.setStreamCloseHook((complete, error) -> streamClosed(call, start, complete, error));
+        }
+
+        ToolCallResult result = null;
+        Throwable error = null;
+        try {
+            result = doToolCall(call, stream);
+        } catch (Exception | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            // a streamed result holds the permit until its body is written
+            if (limiter != null && (result == null || !result.isStreamed())) {
+                limiter.release(System.nanoTime() - start, limiterOutcome(call, error));
+            }
+        }
+
+        storeCache(call, callKey, result);
+        return new McpResponse(id, result);
+    }
+
+    /**
+     * End of a streamed result: the body was written, the writer gave up on it, or the upstream broke mid-stream.
+     */
+    private void streamClosed(McpToolCall call, long start, boolean complete, IOException error) {
+        McpToolDefinition tool = call.getTool();
+        if (error != null) {
+            log.warn("[MCP] Upstream stream of tool {} broke after the response started, the result is truncated.msg:{}", tool.getName(),
+                ExceptionUtils.getRootCauseMessage(error));
+        }
+
+        McpToolLimiter limiter = tool.getLimiter();
+        if (limiter != null) {
+            McpToolLimiter.Outcome outcome;
+            if (complete) {
+                outcome = McpToolLimiter.Outcome.SUCCEEDED;
+            } else {
+                // no error means the client went away
+                outcome = error != null ? limiterOutcome(call, error) : McpToolLimiter.Outcome.IGNORED;
+            }
+            limiter.release(System.nanoTime() - start, outcome);
+        }
+        call.getRegistration().close();
+    }
+
+    private static boolean isStreamed(McpResponse response) {
+        return response != null && response.getResult() instanceof ToolCallResult && ((ToolCallResult) response.getResult()).isStreamed();
+    }
+
+    /**
+     * Release a streamed result which could not be written, see
+     * {@link #handleStreamingRequest(McpRequest, HttpServletRequest)}.
+     */
+    void closeStream(McpProtocolBase resp) {
+        if (resp instanceof McpResponse && isStreamed((McpResponse) resp)) {
+            ((ToolCallResult) ((McpResponse) resp).getResult()).closeStream();
+        }
+    }
+
+    /**
+     * The call's registration aborts it on cancel or deadline.
+     */
+    private ToolCallResult doToolCall(McpToolCall call, boolean stream) throws Exception {
+        McpToolDefinition tool = call.getTool();
+        McpInFlightCalls.Registration registration = call.getRegistration();
+        if (directInvoke && tool.isDirectInvocable()) {
+            registration.bindCurrentThread();
+            return invokeDirect(call);
+        }
+
+        Consumer<Call> callListener = c -> registration.onCancel(c::cancel);
+        OpenApiHttpClient client = newUpstreamClient(call);
+        String paramStr = responseWriter.writeValueAsString(call.getParams().getRawArguments());
+        boolean rendered = tool.getResultFormat() != McpResultFormat.JSON;
+        if (!stream && call.getProjection() == null && !rendered) {
+            String result = client.doJsonPost(tool.getApiPath(), paramStr, call.getDeadlineMillis(), callListener);
+            return toolResult(call, result);
+        }
+
+        ResponseBody body = client.doJsonPostForBody(tool.getApiPath(), paramStr, call.getDeadlineMillis(), callListener);
+        if (call.getProjection() != null) {
+            // filtered while it is read, the whole body is never held
+            try (ResponseBody b = body) {
+                MediaType contentType = b.contentType();
+                Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+                McpRecordingInputStream recording = new McpRecordingInputStream(b.byteStream(), projectionRecoveryBytes);
+                BufferedInputStream in = new BufferedInputStream(recording);
+                McpToolResultProjection.Projected projected;
+                try {
+                    projected = call.getProjection().apply(in);
+                } catch (JsonProcessingException e) {
+                    // malformed body; a broken upstream connection is not recoverable and goes up as is
+                    byte[] whole = recording.readWhole();
+                    if (whole == null) {
+                        log.warn("[MCP] Project result of tool {} failed, too large to return whole.msg:{}", tool.getName(), ExceptionUtils.getRootCauseMessage(e));
+                        return ToolCallResult.fromError("Result of tool " + tool.getName() + " is not valid JSON: " + e.getOriginalMessage());
+                    }
+                    log.warn("[MCP] Project result of tool {} failed, return it whole.msg:{}", tool.getName(), ExceptionUtils.getRootCauseMessage(e));
+                    return toolResult(tool, new String(whole, charset));
+                }
+                if (projected != null) {
+                    return projectedResult(call, projected);
+                }
+
+                return toolResult(call, new String(in.readAllBytes(), charset));
+            }
+        }
+
+        if (rendered) {
+            return renderedResult(call, body, stream);
+        }
+
+        long length = body.contentLength();
+        if ((length >= 0 && length <= streamThresholdBytes) || (tool.isStructured() && structuredContentText)) {
+            try (ResponseBody b = body) {
+                return toolResult(call, b.string());
+            }
+        }
+        return streamedResult(call, body, body.charStream());
+    }
+
+    /**
+     * Render the body as a table while it is read, only the table is held. A body which turns out not to be tabular is
+     * read again from the recorded bytes and returned as is, streamed if the call may stream.
+     */
+    private ToolCallResult renderedResult(McpToolCall call, ResponseBody body, boolean stream) throws IOException {
+        McpToolDefinition tool = call.getTool();
+        MediaType contentType = body.contentType();
+        Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+        McpRecordingInputStream recording = new McpRecordingInputStream(body.byteStream(), projectionRecoveryBytes);
+        boolean handedOver = false;
+        try {
+            String table = McpToolResultRenderer.render(new InputStreamReader(recording, charset), tool.getResultFormat());
+            if (table != null) {
+                return ToolCallResult.fromText(table);
+            }
+
+            InputStream replay = recording.replay();
+            if (replay == null) {
+                log.warn("[MCP] Render result of tool {} as {} failed, too large to return whole.", tool.getName(), tool.getResultFormat());
+                return ToolCallResult.fromError("Result of tool " + tool.getName() + " is not tabular, can not render it as " + tool.getResultFormat());
+            }
+            if (stream && !(tool.isStructured() && structuredContentText)) {
+                ToolCallResult result = streamedResult(call, body, new InputStreamReader(replay, charset));
+                handedOver = true;
+                return result;
+            }
+            return plainResult(tool, new String(replay.readAllBytes(), charset));
+        } finally {
+            if (!handedOver) {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * The hook hands the call back once the body is written.
+     */
+    private ToolCallResult streamedResult(McpToolCall call, ResponseBody body, Reader in) throws IOException {
+        Reader reader = new McpStreamedBody(in, call.getStreamCloseHook());
+        try {
+            return call.getTool().isStructured() ? ToolCallResult.fromJsonStream(reader) : ToolCallResult.fromStream(reader);
+        } catch (IOException | RuntimeException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for a coalesced call. Cancel or deadline of this caller interrupts the wait and detaches it, the shared call
+     * keeps running for the others.
+     */
+    private ToolCallResult awaitShared(McpToolCall call, CompletableFuture<ToolCallResult> shared) throws Exception {
+        call.getRegistration().bindCurrentThread();
+        try {
+            return shared.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            shared.cancel(false);
+        }
+    }
+
+    private CompletableFuture<McpProtocolBase> handleToolCallAsync(Object id, HttpServletRequest request, ToolCallParams callParams,
+                                                                   McpInFlightCalls.Registration registration) throws Exception {
+        McpToolCall call = newToolCall(id, request, callParams, registration);
+        String callKey = callKey(call);
+        ToolCallResult cached = lookupCache(call, callKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(new McpResponse(id, cached));
+        }
+
+        if (call.getTool().isCoalesce()) {
+            // cancel or deadline of this caller detaches it only, the shared call keeps running for the others
+            CompletableFuture<ToolCallResult> shared = coalescer.join(callKey, () -> doSharedToolCall(call, callKey));
+            registration.onCancel(() -> shared.cancel(false));
+            return shared.thenApply(result -> new McpResponse(id, result));
+        }
+
+        // cancelling a derived future does not reach its source, a cancel aborts the upstream call via the registration
+        return doLimitedToolCallAsync(call).thenApply(result -> {
+            storeCache(call, callKey, result);
+            return new McpResponse(id, result);
+        });
+    }
+
+    /**
+     * Execution shared by coalesced calls. It runs detached from the caller which happened to start it, under its own
+     * registration bounded by the tool budget: no caller's cancel or client deadline applies to the others. It is
+     * cancelled once the last caller left.
+     */
+    private McpToolCallCoalescer.SharedCall doSharedToolCall(McpToolCall call, String callKey) {
+        McpInFlightCalls.Registration registration = inFlightCalls.register(null);
+        long deadline = System.currentTimeMillis() + toolTimeoutMillis(call.getTool());
+        registration.expireAt(deadline);
+        McpToolCall shared = new McpToolCall(call.getId(), call.getRequest(), call.getParams(), call.getTool(), registration, deadline, false, call.getProjection());
+        shared.setArgumentsHash(call.getArgumentsHash());
+
+        CompletableFuture<ToolCallResult> future;
+        try {
+            future = doLimitedToolCallAsync(shared).thenApply(result -> {
+                storeCache(shared, callKey, result);
+                return result;
+            });
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return new McpToolCallCoalescer.SharedCall(future.whenComplete((r, t) -> registration.close()), registration::cancel);
+    }
+
+    /**
+     * The permit is held until the upstream call is really finished: the returned future is never cancelled, a cancel
+     * aborts the call through the registration and the future completes once it is aborted.
+     */
+    private CompletableFuture<ToolCallResult> doLimitedToolCallAsync(McpToolCall call) throws Exception {
+        McpToolLimiter limiter = call.getTool().getLimiter();
+        if (limiter == null) {
+            return doToolCallAsync(call);
+        }
+
+        acquirePermit(call.getTool());
+        long start = System.nanoTime();
+        CompletableFuture<ToolCallResult> future;
+        try {
+            future = doToolCallAsync(call);
+        } catch (Exception | Error e) {
+            limiter.release(System.nanoTime() - start, limiterOutcome(call, e));
+            throw e;
+        }
+        // hand out the stage after the release, a client sending its next call on the response must find the permit free
+        return future.whenComplete((r, t) -> limiter.release(System.nanoTime() - start, limiterOutcome(call, t)));
+    }
+
+    /**
+     * Only upstream 5xx and timeouts within the tool budget mean overload; cancels, the client's own deadline, bad
+     * arguments and 4xx are the client's doing.
+     */
+    private McpToolLimiter.Outcome limiterOutcome(McpToolCall call, Throwable t) {
+        if (t == null) {
+            return McpToolLimiter.Outcome.SUCCEEDED;
+        }
+
+        McpInFlightCalls.Registration registration = call.getRegistration();
+        if (registration.isCancelled()) {
+            return McpToolLimiter.Outcome.IGNORED;
+        }
+
+        if (registration.isExpired()) {
+            return call.isClientDeadline() ? McpToolLimiter.Outcome.IGNORED : McpToolLimiter.Outcome.OVERLOADED;
+        }
+
+        ServerException serverException = ExceptionUtils.throwableOfType(t, ServerException.class);
+        if (serverException != null) {
+            int code = NumberUtils.toInt(serverException.getErrCode(), 0);
+            return code >= 500 ? McpToolLimiter.Outcome.OVERLOADED : McpToolLimiter.Outcome.IGNORED;
+        }
+
+        if (ExceptionUtils.throwableOfType(t, InterruptedIOException.class) != null && !call.isClientDeadline()) {
+            // OkHttp call, connect or read timeout
+            return McpToolLimiter.Outcome.OVERLOADED;
+        }
+        return McpToolLimiter.Outcome.IGNORED;
+    }
+
+    private CompletableFuture<ToolCallResult> doToolCallAsync(McpToolCall call) throws Exception {
+        McpToolDefinition tool = call.getTool();
+        if (directInvoke && tool.isDirectInvocable()) {
+            return submitToolCall(call, () -> invokeDirect(call));
+        }
+
+        if (toolExecutor.isVirtual()) {
+            // a parked virtual thread is cheaper than a dispatcher thread
+            return submitToolCall(call, () -> doToolCall(call, false));
+        }
+
+        OpenApiHttpClient client = newUpstreamClient(call);
+        String paramStr = responseWriter.writeValueAsString(call.getParams().getRawArguments());
+        Consumer<Call> callListener = c -> call.getRegistration().onCancel(c::cancel);
+        return client.doJsonPostAsync(tool.getApiPath(), paramStr, call.getDeadlineMillis(), callListener).thenApply(result -> toolResult(call, result));
+    }
+
+    /**
+     * Run a blocking call on the tool executor; a cancel interrupts the worker while the call runs on it.
+     */
+    private CompletableFuture<ToolCallResult> submitToolCall(McpToolCall call, Callable<ToolCallResult> task) {
+        McpInFlightCalls.Registration registration = call.getRegistration();
+        return toolExecutor.submitAsync(call.getRequest(), () -> {
+            registration.bindCurrentThread();
+            try {
+                return task.call();
+            } finally {
+                registration.unbindCurrentThread();
+            }
+        });
+    }
+
+    /**
+     * Project the result if asked; projection errors return the whole result.
+     */
+    private ToolCallResult toolResult(McpToolCall call, String text) {
+        if (call.getProjection() != null && text != null) {
+            try {
+                McpToolResultProjection.Projected projected = call.getProjection().apply(text);
+                if (projected != null) {
+                    return projectedResult(call, projected);
+                }
+            } catch (IOException e) {
+                log.warn("[MCP] Project result of tool {} failed, return it whole.msg:{}", call.getTool().getName(), ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+        return toolResult(call.getTool(), text);
+    }
+
+    /**
+     * The projected result, with the bytes it saved in {@code _meta.projection}.
+     */
+    private ToolCallResult projectedResult(McpToolCall call, McpToolResultProjection.Projected projected) {
+        projectedCalls.increment();
+        projectionSavedBytes.add(projected.getSavedBytes());
+        log.debug("[MCP] Result of tool {} projected from {} to {} bytes.", call.getTool().getName(), projected.getOriginalBytes(), projected.getProjectedBytes());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fields", call.getProjection().getFields());
+        stats.put("originalBytes", projected.getOriginalBytes());
+        stats.put("projectedBytes", projected.getProjectedBytes());
+        stats.put("savedBytes", projected.getSavedBytes());
+        return toolResult(call.getTool(), projected.getJson()).withMeta(Collections.singletonMap("projection", stats));
+    }
+
+    /**
+     * Calls whose result was projected.
+     */
+    public long getProjectedCalls() {
+        return projectedCalls.sum();
+    }
+
+    /**
+     * Bytes left out of tool results by projections, in total.
+     */
+    public long getProjectionSavedBytes() {
+        return projectionSavedBytes.sum();
+    }
+
+    /**
+     * Arrays of flat objects are rendered as a table if the tool asks for it, upstream JSON objects of structured
+     * tools are embedded raw, anything else is returned as text.
+     */
+    private ToolCallResult toolResult(McpToolDefinition tool, String text) {
+        String table = McpToolResultRenderer.render(text, tool.getResultFormat());
+        if (table != null) {
+            return ToolCallResult.fromText(table);
+        }
+        return plainResult(tool, text);
+    }
+
+    /**
+     * Upstream JSON objects of structured tools are embedded raw, anything else is returned as text.
+     */
+    private ToolCallResult plainResult(McpToolDefinition tool, String text) {
+        if (!tool.isStructured()) {
+            return ToolCallResult.fromText(text);
+        }
+
+        if (ToolCallResult.isJsonObject(text)) {
+            return ToolCallResult.fromJson(text, structuredContentText);
+        }
+        // the output schema promises an object, whatever came is passed on as the error
+        log.warn("[MCP] Structured tool {} did not return a JSON object.", tool.getName());
+        return ToolCallResult.fromError(text);
+    }
+
+    private ToolCallResult lookupCache(McpToolCall call, String callKey) {
+        return call.getTool().getCacheTtlMillis() > 0 ? resultCache.get(callKey) : null;
+    }
+
+    private void storeCache(McpToolCall call, String callKey, ToolCallResult result) {
+        if (call.getTool().getCacheTtlMillis() > 0 && !result.isError()) {
+            resultCache.put(callKey, result, call.getTool().getCacheTtlMillis());
+        }
+    }
+
+    /**
+     * Identity of a call for the result cache and coalescing: tool definition, access key and tenant, canonical
+     * arguments, so results never cross callers nor outlive a registry publish replacing the tool. A coalesced call
+     * runs with the credentials of whichever caller started it, so it must never be shared across access keys either.
+     *
+     * @return null if the tool is neither cached nor coalesced.
+     */
+    private String callKey(McpToolCall call) throws Exception {
+        McpToolDefinition tool = call.getTool();
+        if (tool.getCacheTtlMillis() <= 0 && !tool.isCoalesce()) {
+            return null;
+        }
+
+        HttpServletRequest request = call.getRequest();
+        Object ak = request.getAttribute(MCP_API_REQUEST_AK);
+        Object tenant = request.getAttribute(MCP_API_REQUEST_TENANT);
+        return McpToolResultCache.key(tool.getName(), tool.getVersion(), String.valueOf(ak), String.valueOf(tenant), argumentsHash(call));
+    }
+
+    /**
+     * SHA-256 of the arguments re-serialized with sorted object keys, so key order and whitespace do not matter.
+     */
+    private String argumentsHash(McpToolCall call) throws Exception {
+        if (call.getArgumentsHash() == null) {
+            TokenBuffer arguments = call.getParams().getRawArguments();
+            Object args = arguments == null ? null : toolMapper.readValue(arguments.asParser(), Object.class);
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(canonicalWriter.writeValueAsBytes(args));
+            if (call.getProjection() != null) {
+                // projected results differ from whole ones
+                md.update(String.join("\n", call.getProjection().getFields()).getBytes(UTF_8));
+            }
+            byte[] digest = md.digest();
+            call.setArgumentsHash(HexFormat.of().formatHex(digest));
+        }
+        return call.getArgumentsHash();
+    }
+
+    private void acquirePermit(McpToolDefinition tool) {
+        if (!tool.getLimiter().tryAcquire()) {
+            throw new McpRpcException(McpRpcException.TOOL_BUSY, "Tool " + tool.getName() + " is busy, please retry later.");
+        }
+    }
+
+    /**
+     * Resolve the tool and arm the call deadline: the tool's own budget, shortened by the client's deadline if any.
+     */
+    private McpToolCall newToolCall(Object id, HttpServletRequest request, ToolCallParams callParams, McpInFlightCalls.Registration registration) {
+        McpToolDefinition tool = findTool(callParams);
+
+        long deadline = System.currentTimeMillis() + toolTimeoutMillis(tool);
+        long clientDeadline = callParams.getClientDeadline();
+        boolean clientBound = clientDeadline > 0 && clientDeadline < deadline;
+        if (clientBound) {
+            deadline = clientDeadline;
+        }
+
+        registration.expireAt(deadline);
+        List<String> fields = callParams.getFields();
+        McpToolResultProjection projection = fields != null ? McpToolResultProjection.of(fields) : tool.getProjection();
+        return new McpToolCall(id, request, callParams, tool, registration, deadline, clientBound, projection);
+    }
+
+    private long toolTimeoutMillis(McpToolDefinition tool) {
+        return tool.getTimeoutMillis() > 0 ? tool.getTimeoutMillis() : OPEN_API_TIME_OUT * 1000L;
+    }
+
+    private McpToolDefinition findTool(ToolCallParams callParams) {
+        McpToolDefinition tool = registry.find(callParams.getName());
+        if (tool == null) {
             throw new RuntimeException("Tool " + callParams.getName() + " not found.");
         }
+        return tool;
+    }
 
+    private OpenApiHttpClient newUpstreamClient(McpToolCall call) {
+        HttpServletRequest request = call.getRequest();
+        String host = (String) request.getAttribute(MCP_API_REQUEST_API_HOST);
+        String ak = (String) request.getAttribute(MCP_API_REQUEST_AK);
+        String sk = (String) request.getAttribute(MCP_API_REQUEST_SK);
         if (StringUtils.isBlank(host)) {
             host = "127.0.0.1:8111";
         }
@@ -136,15 +1219,66 @@ public class McpControllerHelper {
             throw new RuntimeException("AccessKey/SecretKey is missing.");
         }
 
-        OpenApiHttpClient client = new OpenApiHttpClient(host, OPEN_API_TIME_OUT, ak, sk);
-        String paramStr = Json.toJson(callParams.getArguments());
-        String result = client.doJsonPost(api, paramStr);
+        int timeoutSeconds = (int) Math.max(1, (toolTimeoutMillis(call.getTool()) + 999) / 1000);
+        return new OpenApiHttpClient(host, timeoutSeconds, ak, sk);
+    }
+
+    ToolCallParams readCallParams(McpRequest req) throws Exception {
+        return readParams(req, callParamsReader, ToolCallParams.class);
+    }
+
+    private <T> T readParams(McpRequest req, ObjectReader reader, Class<T> type) throws Exception {
+        if (req.getRawParams() != null) {
+            return reader.readValue(req.getRawParams().asParser());
+        }
+        // params set programmatically rather than parsed from the wire
+        return JacksonHelper.convert(req.getParams(), type);
+    }
+
+    private ToolCallResult invokeDirect(McpToolCall call) throws Exception {
+        McpToolDefinition tool = call.getTool();
+        HttpServletRequest request = call.getRequest();
+        Object body = tool.getBinder().bind(call.getParams().getRawArguments());
+
+        // same attributes OpenApiSessionManager would have filled on the loopback request
+        if (request.getAttribute(OpenApiSessionManager.OPEN_API_REQUEST_ID) == null) {
+            request.setAttribute(OpenApiSessionManager.OPEN_API_REQUEST_ID, request.getAttribute(MCP_API_REQUEST_ID));
+        }
+        request.setAttribute(OpenApiSessionManager.OPEN_API_REQUEST_DEADLINE, call.getDeadlineMillis());
+
+        Object ret = tool.invoke(body, request);
+        return toolResult(call, renderDirectResult(ret));
+    }
+
+    private String renderDirectResult(Object ret) throws Exception {
+        if (ret instanceof ResponseEntity) {
+            ResponseEntity<?> entity = (ResponseEntity<?>) ret;
+            int code = entity.getStatusCode().value();
+            if (code < 200 || code >= 300) {
+                throw new ServerException(String.valueOf(code), String.valueOf(entity.getBody()));
+            }
+            ret = entity.getBody();
+        }
+
+        if (ret == null) {
+            return "";
+        }
+
+        if (ret instanceof CharSequence) {
+            return ret.toString();
+        }
 
-        ToolCallResult toolCallResult = ToolCallResult.fromText(result);
-        return new McpResponse(id, toolCallResult);
+        return responseWriter.writeValueAsString(ret);
     }
 
-    private void initToolInner(Object bean, List<ToolsListResult.ToolDesc> tools, Map<String, String> api) {
+    private List<McpToolRegistry.Entry> scanProvider(Object bean) {
+        McpGeneratedTools generated = generatedToolsByProvider.get(ClassUtils.getUserClass(bean));
+        if (generated != null) {
+            return loadGeneratedProvider(bean, generated);
+        }
+
+        List<McpToolRegistry.Entry> entries = new ArrayList<>();
+        Set<String> names = new HashSet<>();
         Class<?> clazz = bean.getClass();
         RequestMapping classMapping = clazz.getAnnotation(RequestMapping.class);
 
@@ -175,7 +1309,7 @@ public class McpControllerHelper {
                 toolName = method.getName();
             }
 
-            if (api.containsKey(toolName)) {
+            if (!names.add(toolName)) {
                 String error = String.format("[MCP] Duplicate tool name detected: '%s'. " //
                                              + "Class: %s. MCP tool names must be unique. " //
                                              + "Please provide a unique 'name' attribute in the @McpTool annotation " //
@@ -188,9 +1322,51 @@ public class McpControllerHelper {
             String methodPath = resolveMethodPath(method);
             String fullPath = normalizePath(classBase, methodPath);
 
-            tools.add(new ToolsListResult.ToolDesc(toolName, desc, input, i18nProxy));
-            api.put(toolName, fullPath);
+            McpToolArgumentBinder binder = McpToolArgumentBinder.of(toolMapper, input);
+            McpToolDefinition tool = new McpToolDefinition(toolName, fullPath, bean, method, input, binder, mcpTool);
+            if (mcpTool.structured() && !tool.isStructured()) {
+                log.warn("[MCP] Tool {} does not return an object, structured result ignored: {}.{}", toolName, clazz.getSimpleName(), method.getName());
+            }
+
+            Type output = tool.isStructured() ? McpToolDefinition.outputTypeOf(method) : null;
+            ToolsListResult.ToolDesc toolDesc = fastStartup ? ToolsListResult.ToolDesc.lazy(toolName, desc, input, output, i18nProxy)
+                : new ToolsListResult.ToolDesc(toolName, desc, input, output, i18nProxy);
+            entries.add(new McpToolRegistry.Entry(tool, toolDesc));
+        }
+        return entries;
+    }
+
+    /**
+     * Same entries as the reflection scan, from the metadata generated at build time.
+     */
+    private List<McpToolRegistry.Entry> loadGeneratedProvider(Object bean, McpGeneratedTools generated) {
+        McpI18nProxy i18nProxy = userMcpSdk.getI18nProxy();
+        List<McpToolRegistry.Entry> entries = new ArrayList<>();
+        for (McpGeneratedTool tool : generated.tools()) {
+            Map<String, Object> inputSchema = readGeneratedSchema(tool, tool.getInputSchema(), i18nProxy);
+            Map<String, Object> outputSchema = readGeneratedSchema(tool, tool.getOutputSchema(), i18nProxy);
+
+            String desc = i18nProxy.getMessage(tool.getLabel());
+            McpToolArgumentBinder binder = McpToolArgumentBinder.of(toolMapper, tool.getBodyType());
+            McpToolDefinition definition = new McpToolDefinition(tool, bean, binder);
+            entries.add(new McpToolRegistry.Entry(definition, new ToolsListResult.ToolDesc(tool.getName(), desc, inputSchema, outputSchema)));
+        }
+        return entries;
+    }
+
+    private Map<String, Object> readGeneratedSchema(McpGeneratedTool tool, String json, McpI18nProxy i18nProxy) {
+        if (json == null) {
+            return null;
+        }
+
+        Map<String, Object> schema;
+        try {
+            schema = toolMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (IOException e) {
+            throw new IllegalStateException("[MCP] Parse generated schema of tool " + tool.getName() + " failed.", e);
         }
+        McpGeneratedTool.resolveI18n(schema, i18nProxy);
+        return schema;
     }
 
     private Parameter findRequestBodyParam(Method method) {
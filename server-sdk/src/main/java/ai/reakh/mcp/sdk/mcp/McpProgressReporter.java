@@ -0,0 +1,63 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ai.reakh.mcp.sdk.mcp.model.response.McpNotification;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends {@code notifications/progress} for a tool call streamed over SSE. In-process tools find it in the request
+ * attribute {@code MCP_API_PROGRESS_REPORTER} when the client asked for progress with a {@code progressToken}.
+ */
+@Slf4j
+public class McpProgressReporter {
+
+    private final Object       progressToken;
+
+    private final McpSseWriter writer;
+
+    /**
+     * Set once the tool reported its own progress, the transport stops sending elapsed time heartbeats then so the
+     * progress value stays monotonic.
+     */
+    @Getter
+    private volatile boolean   reported;
+
+    McpProgressReporter(Object progressToken, McpSseWriter writer){
+        this.progressToken = progressToken;
+        this.writer = writer;
+    }
+
+    public void report(double progress, Double total, String message) {
+        reported = true;
+        send(progress, total, message);
+    }
+
+    void heartbeat(double elapsedSeconds) throws IOException {
+        writer.event(new McpNotification(McpNotification.PROGRESS, params(elapsedSeconds, null, "running")));
+    }
+
+    private void send(double progress, Double total, String message) {
+        try {
+            writer.event(new McpNotification(McpNotification.PROGRESS, params(progress, total, message)));
+        } catch (IOException e) {
+            log.debug("[MCP] Send progress failed, client may be gone.msg:{}", e.getMessage());
+        }
+    }
+
+    private Map<String, Object> params(double progress, Double total, String message) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("progressToken", progressToken);
+        params.put("progress", progress);
+        if (total != null) {
+            params.put("total", total);
+        }
+        if (message != null) {
+            params.put("message", message);
+        }
+        return params;
+    }
+}
@@ -0,0 +1,94 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * Keeps the first bytes read from an upstream body, so a body which a projection or a renderer could not handle can
+ * still be returned whole. Only the first {@code maxBytes} are kept, memory stays bounded whatever the body size.
+ */
+class McpRecordingInputStream extends FilterInputStream {
+
+    private final int                   maxBytes;
+
+    private final ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+
+    private boolean                     overflow;
+
+    McpRecordingInputStream(InputStream in, int maxBytes){
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            record(new byte[] { (byte) b }, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            record(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes are part of the body too
+        byte[] buf = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+        return Math.max(0, read(buf, 0, buf.length));
+    }
+
+    /**
+     * The whole body: the bytes read so far and the rest of it, read straight from the source.
+     *
+     * @return null if the body is larger than {@code maxBytes}.
+     */
+    byte[] readWhole() throws IOException {
+        if (overflow) {
+            return null;
+        }
+
+        byte[] rest = in.readNBytes(maxBytes - recorded.size() + 1);
+        if (recorded.size() + rest.length > maxBytes) {
+            return null;
+        }
+        recorded.write(rest);
+        return recorded.toByteArray();
+    }
+
+    /**
+     * The whole body again, not held in memory: the bytes read so far followed by the unread rest. This stream must
+     * not be read any more.
+     *
+     * @return null if more than {@code maxBytes} were read already.
+     */
+    InputStream replay() {
+        if (overflow) {
+            return null;
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(recorded.toByteArray()), in);
+    }
+
+    private void record(byte[] b, int off, int len) {
+        if (overflow) {
+            return;
+        }
+        if (recorded.size() + len > maxBytes) {
+            overflow = true;
+            recorded.reset();
+            return;
+        }
+        recorded.write(b, off, len);
+    }
+}
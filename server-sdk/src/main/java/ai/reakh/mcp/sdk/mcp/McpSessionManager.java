@@ -3,20 +3,22 @@ package ai.reakh.mcp.sdk.mcp;
 import static ai.reakh.mcp.sdk.constants.McpConstants.*;
 
 import java.io.PrintWriter;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import com.fasterxml.uuid.Generators;
-
 import ai.reakh.mcp.sdk.UserInfo;
 import ai.reakh.mcp.sdk.UserMcpSdk;
+import ai.reakh.mcp.sdk.openapi.NonceReplayGuard;
 import ai.reakh.mcp.sdk.openapi.OpenApiSigner;
+import ai.reakh.mcp.sdk.utils.RequestIdGenerator;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.Setter;
 
 /**
  * @author bucketli 2021/10/11 19:29
@@ -29,11 +31,32 @@ public class McpSessionManager implements HandlerInterceptor {
 
     private static final int SIGNATURE_ERROR         = 497;
 
+    private static final int NONCE_REPLAYED          = 496;
+
     private final String     MCP_URI_PREFIX;
 
+    /**
+     * Rejects signed requests whose nonce was already used, off when null.
+     */
+    @Setter
+    private NonceReplayGuard nonceReplayGuard;
+
     @Resource
     private UserMcpSdk       userMcpSdk;
 
+    @Resource
+    private McpSessionStore  mcpSessionStore;
+
+    /**
+     * Trust the {@code Mcp-Session-Id} handed out on a signed initialize: requests of a live session skip the
+     * signature and nonce checks. The user is still looked up on every request, through a
+     * {@link ai.reakh.mcp.sdk.CachingUserMcpSdk} it stays cheap: a session whose key was revoked or whose secret
+     * changed is dropped and the request has to be signed again. Sessions also end after
+     * {@link McpSessionStore#setMaxLifetimeMillis(long)} however active they are.
+     */
+    @Setter
+    private boolean          sessionAuthEnabled;
+
     public McpSessionManager(String mcpUriPrefix){
         this.MCP_URI_PREFIX = mcpUriPrefix;
     }
@@ -45,6 +68,21 @@ public class McpSessionManager implements HandlerInterceptor {
             return true;
         }
 
+        if (sessionAuthEnabled) {
+            String sessionId = request.getHeader(MCP_SESSION_ID_HEADER);
+            McpSessionStore.Session session = StringUtils.isBlank(sessionId) ? null : mcpSessionStore.authenticate(sessionId);
+            if (session != null) {
+                UserInfo current = userMcpSdk.fetchByAccessKey(session.getAccessKey());
+                if (current != null && Objects.equals(current.getSecretKey(), session.getUser().getSecretKey())) {
+                    fillRequest(request, session.getAccessKey(), current);
+                    return true;
+                }
+                // key revoked or secret rotated since the session was bound
+                mcpSessionStore.remove(sessionId);
+            }
+            // unknown, anonymous or dropped session, the request has to be signed
+        }
+
         String ak = request.getParameter("AccessKeyId");
         String signature = request.getParameter("Signature");
         String signatureMethod = request.getParameter("SignatureMethod");
@@ -69,33 +107,36 @@ public class McpSessionManager implements HandlerInterceptor {
             return false;
         }
 
-        Map<String, String> paramToSign = new HashMap<>();
-        paramToSign.put("SignatureMethod", signatureMethod);
-        paramToSign.put("SignatureNonce", signatureNonce);
-        paramToSign.put("AccessKeyId", ak);
-
-        String paramStr = OpenApiSigner.composeStringToSign(paramToSign);
-        String regenSignature = OpenApiSigner.signString(paramStr, userInfo.getSecretKey());
-
-        if (!signature.equals(regenSignature)) {
+        if (!OpenApiSigner.verifyCommonParams(ak, signatureMethod, signatureNonce, signature, userInfo.getSecretKey())) {
             responseSystemError(response, SIGNATURE_ERROR);
             return false;
         }
 
-        if (userInfo.getAttrsFillToReq() != null) {
+        if (nonceReplayGuard != null && !nonceReplayGuard.accept(ak, signatureNonce)) {
+            responseSystemError(response, NONCE_REPLAYED);
+            return false;
+        }
+
+        fillRequest(request, ak, userInfo);
+        return true;
+    }
+
+    private void fillRequest(HttpServletRequest request, String ak, UserInfo userInfo) {
+        if (userInfo.getAttrsFillToReq() != null && !userInfo.getAttrsFillToReq().isEmpty()) {
             for (Map.Entry<String, String> attr : userInfo.getAttrsFillToReq().entrySet()) {
                 request.setAttribute(attr.getKey(), attr.getValue());
             }
+            // tenant attributes, part of the tool result cache key next to the access key
+            request.setAttribute(MCP_API_REQUEST_TENANT, new TreeMap<>(userInfo.getAttrsFillToReq()).toString());
         }
 
-        request.setAttribute(MCP_API_REQUEST_ID, generateRequestId());
         request.setAttribute(MCP_API_REQUEST_ID, generateRequestId());
         request.setAttribute(MCP_API_REQUEST_AK, ak);
         request.setAttribute(MCP_API_REQUEST_SK, userInfo.getSecretKey());
+        request.setAttribute(MCP_API_REQUEST_USER, userInfo);
 
         String api = request.getServerName() + ":" + request.getServerPort();
         request.setAttribute(MCP_API_REQUEST_API_HOST, api);
-        return true;
     }
 
     protected void responseSystemError(HttpServletResponse response, int code) throws Exception {
@@ -107,6 +148,6 @@ public class McpSessionManager implements HandlerInterceptor {
     }
 
     protected String generateRequestId() {
-        return Generators.timeBasedGenerator().generate().toString();
+        return RequestIdGenerator.next();
     }
 }
@@ -0,0 +1,166 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import ai.reakh.mcp.sdk.UserInfo;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Sessions of the streamable http transport, keyed by the {@code Mcp-Session-Id} handed out on initialize. Sessions
+ * expire after {@link #idleTimeoutMillis} without a request and {@link #maxLifetimeMillis} after their creation, the
+ * table never holds more than {@link #maxSessions}.
+ * A session created from a signed initialize is bound to the caller, see {@link McpSessionManager#setSessionAuthEnabled}.
+ */
+@Component
+public class McpSessionStore {
+
+    private static final SecureRandom  RANDOM            = new SecureRandom();
+
+    private static final char[]        HEX               = "0123456789abcdef".toCharArray();
+
+    @Setter
+    private int                        maxSessions       = 10000;
+
+    @Setter
+    private long                       idleTimeoutMillis = 30 * 60 * 1000L;
+
+    /**
+     * Absolute lifetime, so a leaked session id does not stay usable as long as it is kept busy.
+     */
+    @Setter
+    private long                       maxLifetimeMillis = 12 * 60 * 60 * 1000L;
+
+    private final Map<String, Session> sessions          = new ConcurrentHashMap<>();
+
+    public String create() {
+        return create(null, null);
+    }
+
+    /**
+     * Session bound to the caller whose signature was verified, both null for an anonymous one.
+     */
+    public String create(String accessKey, UserInfo user) {
+        if (sessions.size() >= maxSessions) {
+            evict();
+        }
+
+        String id = newSessionId();
+        long now = System.currentTimeMillis();
+        sessions.put(id, new Session(now, now, accessKey, user));
+        return id;
+    }
+
+    /**
+     * @return false if the session is unknown or expired, the client has to initialize again.
+     */
+    public boolean touch(String id) {
+        return live(id) != null;
+    }
+
+    /**
+     * Touch the session like {@link #touch(String)}.
+     *
+     * @return null unless the session is live and bound to a caller.
+     */
+    public Session authenticate(String id) {
+        Session session = live(id);
+        return session != null && session.user != null ? session : null;
+    }
+
+    public boolean remove(String id) {
+        return sessions.remove(id) != null;
+    }
+
+    /**
+     * Drop the sessions of an access key, e.g. once it was revoked or its secret rotated.
+     */
+    public int removeByAccessKey(String accessKey) {
+        int before = sessions.size();
+        sessions.values().removeIf(s -> s.accessKey != null && s.accessKey.equals(accessKey));
+        return Math.max(0, before - sessions.size());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private Session live(String id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (isExpired(session, now)) {
+            sessions.remove(id, session);
+            return null;
+        }
+
+        session.lastAccess = now;
+        return session;
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        sessions.entrySet().removeIf(e -> isExpired(e.getValue(), now));
+
+        // still full, drop the least recently used one
+        while (sessions.size() >= maxSessions) {
+            String oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<String, Session> e : sessions.entrySet()) {
+                if (e.getValue().lastAccess < oldestAccess) {
+                    oldestAccess = e.getValue().lastAccess;
+                    oldest = e.getKey();
+                }
+            }
+
+            if (oldest == null) {
+                return;
+            }
+            sessions.remove(oldest);
+        }
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.lastAccess > idleTimeoutMillis || now - session.createdAt > maxLifetimeMillis;
+    }
+
+    private static String newSessionId() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    @Getter
+    public static class Session {
+
+        private final long     createdAt;
+
+        private volatile long  lastAccess;
+
+        private final String   accessKey;
+
+        /**
+         * The user as of the signed initialize, its secret tells whether the key was rotated since.
+         */
+        private final UserInfo user;
+
+        Session(long createdAt, long lastAccess, String accessKey, UserInfo user){
+            this.createdAt = createdAt;
+            this.lastAccess = lastAccess;
+            this.accessKey = accessKey;
+            this.user = user;
+        }
+    }
+}
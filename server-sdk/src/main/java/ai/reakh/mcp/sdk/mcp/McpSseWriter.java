@@ -0,0 +1,217 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * Writes server-sent event frames, safe to use from the tool thread and the request thread at the same time.
+ * <p>
+ * Blocking by default. After {@link #startNonBlocking(Consumer)} frames are queued and written by whichever thread
+ * finds the output ready, so no writer, timer or tool thread ever parks on a client which stopped reading; the
+ * backlog shows in {@link #getStalledMillis()}.
+ */
+class McpSseWriter implements WriteListener {
+
+    private static final byte[]      EVENT_PREFIX = "event: message\ndata: ".getBytes(UTF_8);
+
+    private static final byte[]      EVENT_SUFFIX = "\n\n".getBytes(UTF_8);
+
+    private final OutputStream       out;
+
+    private final ObjectWriter       writer;
+
+    private final ReentrantLock      lock         = new ReentrantLock();
+
+    /**
+     * Frames the output was not ready for yet, non-blocking mode only.
+     */
+    private final ArrayDeque<byte[]> pending      = new ArrayDeque<>();
+
+    private ServletOutputStream      nonBlocking;
+
+    private Consumer<Throwable>      errorHandler;
+
+    private boolean                  unflushed;
+
+    /**
+     * {@link System#nanoTime()} since when frames wait for the output, 0 if none wait.
+     */
+    private long                     stalledSince;
+
+    private boolean                  closed;
+
+    private Runnable                 whenWritten;
+
+    McpSseWriter(OutputStream out, ObjectWriter writer){
+        this.out = out;
+        this.writer = writer;
+    }
+
+    /**
+     * Switch to non-blocking writes, the request must be async started and nothing written yet.
+     *
+     * @param errorHandler told when the container reports the output broken, e.g. the client went away.
+     */
+    void startNonBlocking(Consumer<Throwable> errorHandler) {
+        lock.lock();
+        try {
+            this.errorHandler = errorHandler;
+            this.nonBlocking = (ServletOutputStream) out;
+            nonBlocking.setWriteListener(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void event(Object message) throws IOException {
+        byte[] data = writer.writeValueAsBytes(message);
+        // raw JSON embedded in structured results may span lines; outside strings line breaks are plain whitespace
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n' || data[i] == '\r') {
+                data[i] = ' ';
+            }
+        }
+
+        byte[] frame = new byte[EVENT_PREFIX.length + data.length + EVENT_SUFFIX.length];
+        System.arraycopy(EVENT_PREFIX, 0, frame, 0, EVENT_PREFIX.length);
+        System.arraycopy(data, 0, frame, EVENT_PREFIX.length, data.length);
+        System.arraycopy(EVENT_SUFFIX, 0, frame, EVENT_PREFIX.length + data.length, EVENT_SUFFIX.length);
+        send(frame);
+    }
+
+    void comment(String comment) throws IOException {
+        send((": " + comment + "\n\n").getBytes(UTF_8));
+    }
+
+    private void send(byte[] frame) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("SSE stream closed");
+            }
+
+            if (nonBlocking == null) {
+                out.write(frame);
+                out.flush();
+                return;
+            }
+            pending.add(frame);
+            drain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How long queued frames have been waiting for the client to read, 0 if nothing waits.
+     */
+    long getStalledMillis() {
+        lock.lock();
+        try {
+            return stalledSince == 0 ? 0 : Math.max(1, (System.nanoTime() - stalledSince) / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * No more frames are accepted; {@code whenWritten} runs once the queued ones are out, right away in blocking mode.
+     */
+    void close(Runnable whenWritten) {
+        boolean written;
+        lock.lock();
+        try {
+            closed = true;
+            written = nonBlocking == null || pending.isEmpty() && !unflushed;
+            if (!written) {
+                this.whenWritten = whenWritten;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (written) {
+            whenWritten.run();
+        }
+    }
+
+    /**
+     * Give up on the queued frames, e.g. the client stopped reading.
+     */
+    void abort() {
+        lock.lock();
+        try {
+            closed = true;
+            pending.clear();
+            unflushed = false;
+            whenWritten = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        Runnable written = null;
+        lock.lock();
+        try {
+            if (pending.isEmpty() && !unflushed) {
+                return;
+            }
+            if (drain() && closed) {
+                written = whenWritten;
+                whenWritten = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (written != null) {
+            written.run();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        abort();
+        if (errorHandler != null) {
+            errorHandler.accept(t);
+        }
+    }
+
+    /**
+     * Write what the output takes without blocking, the container calls {@link #onWritePossible()} for the rest.
+     *
+     * @return true if nothing is left.
+     */
+    private boolean drain() throws IOException {
+        while (nonBlocking.isReady()) {
+            byte[] frame = pending.poll();
+            if (frame != null) {
+                nonBlocking.write(frame);
+                unflushed = true;
+            } else if (unflushed) {
+                unflushed = false;
+                nonBlocking.flush();
+            } else {
+                stalledSince = 0;
+                return true;
+            }
+        }
+
+        if (stalledSince == 0) {
+            stalledSince = System.nanoTime();
+        }
+        return false;
+    }
+}
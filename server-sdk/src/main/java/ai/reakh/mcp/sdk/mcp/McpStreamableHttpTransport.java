@@ -0,0 +1,453 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import static ai.reakh.mcp.sdk.constants.McpConstants.ETAG_HEADER;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_PROGRESS_REPORTER;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_AK;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_USER;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_SESSION_ID_HEADER;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import ai.reakh.mcp.sdk.UserInfo;
+import ai.reakh.mcp.sdk.constants.McpClientMethod;
+import ai.reakh.mcp.sdk.mcp.model.McpProtocolBase;
+import ai.reakh.mcp.sdk.mcp.model.request.McpRequest;
+import ai.reakh.mcp.sdk.mcp.model.request.ToolCallParams;
+import ai.reakh.mcp.sdk.mcp.model.response.McpError;
+import ai.reakh.mcp.sdk.mcp.model.response.McpErrorResponse;
+import ai.reakh.mcp.sdk.mcp.model.response.McpPreEncodedResponse;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolExecutor;
+import jakarta.annotation.Resource;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MCP Streamable HTTP transport on top of {@link McpControllerHelper}. A tools/call from a client accepting
+ * {@code text/event-stream} is answered as an SSE stream: progress notifications (or keep-alive comments) while the
+ * tool runs, then the result as the final event. Everything else is plain JSON. Sessions are handed out on initialize
+ * through the {@code Mcp-Session-Id} header.
+ *
+ * <pre>
+ * &#64;PostMapping("/mcp")
+ * public void mcp(&#64;RequestBody TokenBuffer body, HttpServletRequest request, HttpServletResponse response) throws IOException {
+ *     transport.handlePost(body, request, response);
+ * }
+ * </pre>
+ *
+ * JSON-RPC batches are accepted through {@link #handlePost(TokenBuffer, HttpServletRequest, HttpServletResponse)}
+ * only, a controller taking a {@link McpRequest} body can not receive them.
+ */
+@Component
+@Slf4j
+public class McpStreamableHttpTransport {
+
+    private static final String                   EVENT_STREAM       = "text/event-stream";
+
+    private static final String                   APPLICATION_JSON   = "application/json";
+
+    /**
+     * Queues the keep-alives of streamed tool calls which do not hold a thread while running, it never writes itself.
+     */
+    private static final ScheduledExecutorService KEEP_ALIVE_TIMER   = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "mcp-sse-keep-alive");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Interval of progress heartbeats or keep-alive comments while a streamed tool call is running.
+     */
+    @Setter
+    private long                                  keepAliveMillis    = 15000;
+
+    /**
+     * An async SSE stream whose client read nothing for this long is dropped and its tool call cancelled.
+     */
+    @Setter
+    private long                                  writeTimeoutMillis = 60000;
+
+    @Resource
+    private McpControllerHelper                   mcpControllerHelper;
+
+    @Resource
+    private McpSessionStore                       mcpSessionStore;
+
+    /**
+     * Handle a raw request body, a single message or a JSON-RPC batch.
+     */
+    public void handlePost(TokenBuffer body, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!dispatchVirtual(request, response, () -> doPost(body, request, response))) {
+            doPost(body, request, response);
+        }
+    }
+
+    public void handlePost(McpRequest req, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!dispatchVirtual(request, response, () -> doPost(req, request, response))) {
+            doPost(req, request, response);
+        }
+    }
+
+    private void doPost(TokenBuffer body, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Object message;
+        try {
+            message = body != null ? mcpControllerHelper.readMessage(body) : null;
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            McpError err = new McpError(McpError.INVALID_REQUEST, "Invalid request: " + ExceptionUtils.getRootCauseMessage(e));
+            writeJson(response, new McpErrorResponse(null, err));
+            return;
+        }
+
+        if (message instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<McpRequest> reqs = (List<McpRequest>) message;
+            handleBatch(reqs, request, response);
+            return;
+        }
+        doPost((McpRequest) message, request, response);
+    }
+
+    private void doPost(McpRequest req, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (req != null && req.getMethod() == McpClientMethod.INITIALIZE) {
+            // bound to the caller the session manager verified, if any
+            Object user = request.getAttribute(MCP_API_REQUEST_USER);
+            String created = user instanceof UserInfo
+                ? mcpSessionStore.create((String) request.getAttribute(MCP_API_REQUEST_AK), (UserInfo) user)
+                : mcpSessionStore.create();
+            response.setHeader(MCP_SESSION_ID_HEADER, created);
+        } else if (!checkSession(req != null ? req.getId() : null, request, response)) {
+            return;
+        }
+
+        if (req != null && req.getId() == null) {
+            mcpControllerHelper.handleRequest(req, request);
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            return;
+        }
+
+        if (req != null && req.getMethod() == McpClientMethod.TOOLS_CALL && acceptsEventStream(request)) {
+            streamToolCall(req, request, response);
+            return;
+        }
+
+        // written right below, large upstream tool results go through without being buffered
+        McpProtocolBase resp = mcpControllerHelper.handleStreamingRequest(req, request);
+        String etag = mcpControllerHelper.getToolsListEtag(resp);
+        if (etag != null) {
+            response.setHeader(ETAG_HEADER, '"' + etag + '"');
+            if (mcpControllerHelper.isToolsListUnchanged(resp)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        try {
+            writeJson(response, resp);
+        } finally {
+            // the upstream body, its permit and registration, if the write failed before reaching it
+            mcpControllerHelper.closeStream(resp);
+        }
+    }
+
+    /**
+     * In virtual thread mode the container thread is handed back right away and the post is served on a virtual
+     * thread of the tool executor, which completes the async request when done.
+     *
+     * @return false if the post must be served on the current thread.
+     */
+    private boolean dispatchVirtual(HttpServletRequest request, HttpServletResponse response, PostTask task) {
+        McpToolExecutor executor = mcpControllerHelper.getToolExecutor();
+        if (executor == null || !executor.isVirtual() || executor.isWorkerThread() || !request.isAsyncSupported() || request.isAsyncStarted()) {
+            return false;
+        }
+
+        AsyncContext async = request.startAsync(request, response);
+        // tool calls are bounded by their own deadlines
+        async.setTimeout(0);
+        executor.execute(request, () -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                log.info("[MCP] Client gone while writing the response,msg:{}", ExceptionUtils.getRootCauseMessage(e));
+            } catch (RuntimeException e) {
+                log.warn("[MCP] Handle post failed,msg:{}", ExceptionUtils.getRootCauseMessage(e), e);
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            } finally {
+                async.complete();
+            }
+        });
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface PostTask {
+
+        void run() throws IOException;
+    }
+
+    /**
+     * Batched calls run in parallel, their responses go out as one JSON array once all are done. Initialize must not
+     * be batched, it creates no session there.
+     */
+    private void handleBatch(List<McpRequest> reqs, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!checkSession(null, request, response)) {
+            return;
+        }
+
+        List<McpProtocolBase> resps = mcpControllerHelper.handleBatchRequest(reqs, request);
+        if (resps == null) {
+            // notifications only
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            return;
+        }
+        writeJson(response, resps);
+    }
+
+    /**
+     * @return false if the request names a session which is unknown or expired, the 404 is written then.
+     */
+    private boolean checkSession(Object id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String sessionId = request.getHeader(MCP_SESSION_ID_HEADER);
+        if (StringUtils.isBlank(sessionId)) {
+            return true;
+        }
+
+        if (!mcpSessionStore.touch(sessionId)) {
+            // unknown or expired session, the client starts over with initialize
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            McpError err = new McpError(McpError.INVALID_REQUEST, "Session not found");
+            writeJson(response, new McpErrorResponse(id, err));
+            return false;
+        }
+        response.setHeader(MCP_SESSION_ID_HEADER, sessionId);
+        return true;
+    }
+
+    /**
+     * Explicit session termination by the client.
+     */
+    public void handleDelete(HttpServletRequest request, HttpServletResponse response) {
+        String sessionId = request.getHeader(MCP_SESSION_ID_HEADER);
+        if (StringUtils.isBlank(sessionId)) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        response.setStatus(mcpSessionStore.remove(sessionId) ? HttpServletResponse.SC_OK : HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    private void streamToolCall(McpRequest req, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ToolCallParams callParams;
+        try {
+            callParams = mcpControllerHelper.readCallParams(req);
+        } catch (Exception e) {
+            // let the helper build the regular error response
+            writeJson(response, mcpControllerHelper.handleRequest(req, request));
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(EVENT_STREAM);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+
+        McpSseWriter sse = new McpSseWriter(response.getOutputStream(), mcpControllerHelper.getResponseWriter());
+        McpProgressReporter reporter = null;
+        if (callParams.getProgressToken() != null) {
+            reporter = new McpProgressReporter(callParams.getProgressToken(), sse);
+            request.setAttribute(MCP_API_PROGRESS_REPORTER, reporter);
+        }
+
+        long start = System.currentTimeMillis();
+        McpToolExecutor executor = mcpControllerHelper.getToolExecutor();
+        if (request.isAsyncSupported() && !request.isAsyncStarted() && (executor == null || !executor.isWorkerThread())) {
+            streamAsync(req, request, response, sse, reporter, start);
+            return;
+        }
+
+        // a virtual thread, waiting and blocking writes are cheap
+        CompletableFuture<McpProtocolBase> future = mcpControllerHelper.handleRequestAsync(req, request);
+        try {
+            sse.comment("stream open");
+            McpProtocolBase result;
+            while (true) {
+                try {
+                    result = future.get(keepAliveMillis, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    keepAlive(sse, reporter, start);
+                }
+            }
+            sse.event(result);
+        } catch (IOException e) {
+            future.cancel(true);
+            log.info("[MCP] SSE client gone while tool call running,msg:{}", ExceptionUtils.getRootCauseMessage(e));
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            sse.event(internalError(req, e));
+        }
+    }
+
+    /**
+     * The servlet thread is handed back while the tool runs and the stream is written non-blocking: the shared timer
+     * only queues keep-alives, so a client which stops reading stalls its own stream and no other. Such a stream is
+     * dropped, and its call cancelled, once nothing could be written to it for {@link #writeTimeoutMillis}.
+     */
+    private void streamAsync(McpRequest req, HttpServletRequest request, HttpServletResponse response, McpSseWriter sse, McpProgressReporter reporter,
+                             long start) {
+        AsyncContext async = request.startAsync(request, response);
+        // tool calls are bounded by their own deadlines
+        async.setTimeout(0);
+
+        CompletableFuture<McpProtocolBase> call = new CompletableFuture<>();
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicReference<ScheduledFuture<?>> keepAlive = new AtomicReference<>();
+        Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) {
+                ScheduledFuture<?> timer = keepAlive.get();
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                async.complete();
+            }
+        };
+        Runnable drop = () -> {
+            sse.abort();
+            call.cancel(true);
+            finish.run();
+        };
+
+        async.addListener(new AsyncListener() {
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                drop.run();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                drop.run();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        sse.startNonBlocking(t -> {
+            log.info("[MCP] SSE client gone while tool call running,msg:{}", ExceptionUtils.getRootCauseMessage(t));
+            drop.run();
+        });
+        try {
+            sse.comment("stream open");
+        } catch (IOException e) {
+            log.info("[MCP] SSE client gone before the tool call,msg:{}", ExceptionUtils.getRootCauseMessage(e));
+            drop.run();
+            return;
+        }
+
+        keepAlive.set(KEEP_ALIVE_TIMER.scheduleWithFixedDelay(() -> {
+            long stalledMillis = sse.getStalledMillis();
+            if (stalledMillis > writeTimeoutMillis) {
+                log.info("[MCP] SSE client read nothing for {} ms, stream of request {} dropped.", stalledMillis, req.getId());
+                drop.run();
+                return;
+            }
+
+            try {
+                // a stalled stream has data on the way already
+                if (stalledMillis == 0 && !call.isDone()) {
+                    keepAlive(sse, reporter, start);
+                }
+            } catch (IOException e) {
+                drop.run();
+            }
+        }, keepAliveMillis, keepAliveMillis, TimeUnit.MILLISECONDS));
+        if (finished.get()) {
+            keepAlive.get().cancel(false);
+        }
+
+        // the stream is ready before the call starts, the tool may report progress right away
+        CompletableFuture<McpProtocolBase> future = mcpControllerHelper.handleRequestAsync(req, request);
+        call.whenComplete((r, t) -> {
+            if (call.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        future.whenComplete((result, t) -> {
+            if (t == null) {
+                call.complete(result);
+            } else {
+                call.completeExceptionally(t);
+            }
+        });
+
+        call.whenComplete((result, t) -> {
+            try {
+                if (!call.isCancelled()) {
+                    sse.event(t == null ? result : internalError(req, t));
+                }
+            } catch (IOException e) {
+                log.info("[MCP] SSE client gone before the tool result,msg:{}", ExceptionUtils.getRootCauseMessage(e));
+            }
+            sse.close(finish);
+        });
+    }
+
+    private void keepAlive(McpSseWriter sse, McpProgressReporter reporter, long start) throws IOException {
+        if (reporter != null && !reporter.isReported()) {
+            reporter.heartbeat((System.currentTimeMillis() - start) / 1000.0);
+        } else {
+            sse.comment("keep-alive");
+        }
+    }
+
+    private McpErrorResponse internalError(McpRequest req, Throwable t) {
+        McpError err = new McpError(McpError.INTERNAL_ERROR, "Internal error: " + ExceptionUtils.getRootCauseMessage(t));
+        return new McpErrorResponse(String.valueOf(req.getId()), err);
+    }
+
+    private boolean acceptsEventStream(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains(EVENT_STREAM);
+    }
+
+    private void writeJson(HttpServletResponse response, Object body) throws IOException {
+        response.setContentType(APPLICATION_JSON);
+        response.setCharacterEncoding("UTF-8");
+        if (body instanceof McpPreEncodedResponse) {
+            McpPreEncodedResponse encoded = (McpPreEncodedResponse) body;
+            encoded.writeTo(response.getOutputStream(), mcpControllerHelper.getResponseWriter());
+            return;
+        }
+        mcpControllerHelper.getResponseWriter().writeValue(response.getOutputStream(), body);
+    }
+}
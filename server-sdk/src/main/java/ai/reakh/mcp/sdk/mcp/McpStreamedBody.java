@@ -0,0 +1,74 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Upstream body of a streamed tool result. The call is only over once the body was copied into the response, so the
+ * permit and the in-flight registration are handed back from {@link #close()}, exactly once.
+ */
+class McpStreamedBody extends FilterReader {
+
+    private final CloseHook     hook;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private boolean             complete;
+
+    private IOException         error;
+
+    McpStreamedBody(Reader in, CloseHook hook){
+        super(in);
+        this.hook = hook;
+    }
+
+    @Override
+    public int read() throws IOException {
+        try {
+            int c = super.read();
+            complete = c < 0;
+            return c;
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        try {
+            int n = super.read(cbuf, off, len);
+            complete = n < 0;
+            return n;
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            super.close();
+        } finally {
+            hook.closed(complete, error);
+        }
+    }
+
+    @FunctionalInterface
+    interface CloseHook {
+
+        /**
+         * @param complete the body was read to its end.
+         * @param error the read failed, the response is truncated; null if the body was read to its end or the
+         * writer gave up on it, e.g. the client went away.
+         */
+        void closed(boolean complete, IOException error);
+    }
+}
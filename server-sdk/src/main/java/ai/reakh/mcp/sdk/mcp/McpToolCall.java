@@ -0,0 +1,65 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import ai.reakh.mcp.sdk.mcp.model.request.ToolCallParams;
+import ai.reakh.mcp.sdk.mcp.tool.McpInFlightCalls;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolDefinition;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolResultProjection;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * State of one tools/call while it is handled.
+ */
+@Getter
+class McpToolCall {
+
+    private final Object                        id;
+
+    private final HttpServletRequest            request;
+
+    private final ToolCallParams                params;
+
+    private final McpToolDefinition             tool;
+
+    private final McpInFlightCalls.Registration registration;
+
+    /**
+     * Absolute deadline in epoch millis.
+     */
+    private final long                          deadlineMillis;
+
+    /**
+     * The client asked for a deadline shorter than the tool budget, expiring is then no sign of upstream load.
+     */
+    private final boolean                       clientDeadline;
+
+    /**
+     * Field selection of the result, the client's or the tool default; null for the whole result.
+     */
+    private final McpToolResultProjection       projection;
+
+    /**
+     * Hash of the canonical arguments, computed on first use.
+     */
+    @Setter
+    private String                              argumentsHash;
+
+    /**
+     * Ends a streamed call once its body is written, set when the result may be streamed.
+     */
+    @Setter
+    private McpStreamedBody.CloseHook           streamCloseHook;
+
+    McpToolCall(Object id, HttpServletRequest request, ToolCallParams params, McpToolDefinition tool, McpInFlightCalls.Registration registration,
+                long deadlineMillis, boolean clientDeadline, McpToolResultProjection projection){
+        this.id = id;
+        this.request = request;
+        this.params = params;
+        this.tool = tool;
+        this.registration = registration;
+        this.deadlineMillis = deadlineMillis;
+        this.clientDeadline = clientDeadline;
+        this.projection = projection;
+    }
+}
@@ -0,0 +1,146 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import ai.reakh.mcp.sdk.mcp.model.response.ToolsListResult;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolDefinition;
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of the registered tools, grouped by the provider which declared them, plus the tools/list
+ * catalog derived from them. Changes build a new snapshot (copy-on-write) which is then published as a whole, so
+ * readers never lock and a call keeps the definitions it started with. A lazy snapshot encodes its catalog on first
+ * use rather than upfront.
+ */
+class McpToolRegistry {
+
+    private final Map<String, List<Entry>>       providers;
+
+    private final Map<String, McpToolDefinition> tools;
+
+    private final List<ToolsListResult.ToolDesc> descs;
+
+    private volatile McpToolsCatalog             catalog;
+
+    private final ReentrantLock                  catalogLock = new ReentrantLock();
+
+    private final int                            pageSize;
+
+    private final ObjectWriter                   writer;
+
+    private final boolean                        lazy;
+
+    private McpToolRegistry(Map<String, List<Entry>> providers, int pageSize, ObjectWriter writer, boolean lazy) throws IOException{
+        Map<String, McpToolDefinition> tools = new HashMap<>();
+        List<ToolsListResult.ToolDesc> descs = new ArrayList<>();
+        for (Map.Entry<String, List<Entry>> provider : providers.entrySet()) {
+            for (Entry entry : provider.getValue()) {
+                String name = entry.getDefinition().getName();
+                if (tools.putIfAbsent(name, entry.getDefinition()) != null) {
+                    String error = String.format("[MCP] Duplicate tool name detected: '%s'. " //
+                                                 + "Provider: %s. MCP tool names must be unique.", name, provider.getKey());
+                    throw new IllegalStateException(error);
+                }
+                descs.add(entry.getDesc());
+            }
+        }
+
+        this.providers = Collections.unmodifiableMap(providers);
+        this.tools = Collections.unmodifiableMap(tools);
+        this.descs = Collections.unmodifiableList(descs);
+        this.pageSize = pageSize;
+        this.writer = writer;
+        this.lazy = lazy;
+        if (!lazy) {
+            this.catalog = McpToolsCatalog.build(this.descs, pageSize, writer);
+        }
+    }
+
+    /**
+     * @param providers tools of each provider, iteration order is the tools/list order.
+     * @param pageSize tools per tools/list page, 0 for a single page.
+     * @param lazy encode the catalog, and with it the lazy schemas, on first use.
+     */
+    static McpToolRegistry of(Map<String, List<Entry>> providers, int pageSize, ObjectWriter writer, boolean lazy) throws IOException {
+        return new McpToolRegistry(new LinkedHashMap<>(providers), pageSize, writer, lazy);
+    }
+
+    McpToolsCatalog getCatalog() {
+        McpToolsCatalog current = catalog;
+        if (current != null) {
+            return current;
+        }
+
+        catalogLock.lock();
+        try {
+            if (catalog == null) {
+                catalog = McpToolsCatalog.build(descs, pageSize, writer);
+            }
+            return catalog;
+        } catch (IOException e) {
+            throw new IllegalStateException("[MCP] Encode tool list failed.", e);
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    boolean isCatalogBuilt() {
+        return catalog != null;
+    }
+
+    /**
+     * New snapshot where the tools of {@code provider} are replaced by {@code entries}; the other providers are kept
+     * as they are.
+     */
+    McpToolRegistry withProvider(String provider, List<Entry> entries) throws IOException {
+        Map<String, List<Entry>> copy = new LinkedHashMap<>(providers);
+        copy.remove(provider);
+        copy.put(provider, Collections.unmodifiableList(new ArrayList<>(entries)));
+        return new McpToolRegistry(copy, pageSize, writer, lazy);
+    }
+
+    /**
+     * @return this snapshot if the provider is unknown.
+     */
+    McpToolRegistry withoutProvider(String provider) throws IOException {
+        if (!providers.containsKey(provider)) {
+            return this;
+        }
+
+        Map<String, List<Entry>> copy = new LinkedHashMap<>(providers);
+        copy.remove(provider);
+        return new McpToolRegistry(copy, pageSize, writer, lazy);
+    }
+
+    McpToolDefinition find(String name) {
+        return tools.get(name);
+    }
+
+    Set<String> getToolNames() {
+        return tools.keySet();
+    }
+
+    List<Entry> getProviderTools(String provider) {
+        return providers.getOrDefault(provider, Collections.emptyList());
+    }
+
+    /**
+     * A tool as it is called and as it is listed.
+     */
+    @Getter
+    static class Entry {
+
+        private final McpToolDefinition        definition;
+
+        private final ToolsListResult.ToolDesc desc;
+
+        Entry(McpToolDefinition definition, ToolsListResult.ToolDesc desc){
+            this.definition = definition;
+            this.desc = desc;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import ai.reakh.mcp.sdk.mcp.exception.McpRpcException;
+import ai.reakh.mcp.sdk.mcp.model.response.McpError;
+import ai.reakh.mcp.sdk.mcp.model.response.McpPreEncodedResponse;
+import ai.reakh.mcp.sdk.mcp.model.response.ToolsListResult;
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of the tools/list answer: the pages, pre-encoded, and a content hash of the whole catalog used
+ * as ETag. Cursors embed the hash, so a cursor taken before the catalog changed is rejected instead of silently
+ * skipping or repeating tools.
+ */
+class McpToolsCatalog {
+
+    @Getter
+    private final String                              etag;
+
+    private final List<McpPreEncodedResponse.Encoded> pages;
+
+    /**
+     * Answer to a client which already holds the current catalog.
+     */
+    @Getter
+    private final McpPreEncodedResponse.Encoded       unchanged;
+
+    @Getter
+    private final int                                 size;
+
+    private McpToolsCatalog(String etag, List<McpPreEncodedResponse.Encoded> pages, McpPreEncodedResponse.Encoded unchanged, int size){
+        this.etag = etag;
+        this.pages = pages;
+        this.unchanged = unchanged;
+        this.size = size;
+    }
+
+    /**
+     * @param pageSize tools per page, 0 for a single page.
+     */
+    static McpToolsCatalog build(List<ToolsListResult.ToolDesc> tools, int pageSize, ObjectWriter writer) throws IOException {
+        String etag = hash(writer.writeValueAsBytes(tools));
+
+        int pageCount = pageSize <= 0 || tools.isEmpty() ? 1 : (tools.size() + pageSize - 1) / pageSize;
+        List<McpPreEncodedResponse.Encoded> pages = new ArrayList<>(pageCount);
+        int size = 0;
+        for (int i = 0; i < pageCount; i++) {
+            List<ToolsListResult.ToolDesc> slice = pageCount == 1 ? tools : tools.subList(i * pageSize, Math.min(tools.size(), (i + 1) * pageSize));
+            String nextCursor = i + 1 < pageCount ? cursor(etag, i + 1) : null;
+            ToolsListResult page = new ToolsListResult(slice, nextCursor);
+            page.setMeta(Collections.singletonMap("etag", etag));
+
+            McpPreEncodedResponse.Encoded encoded = McpPreEncodedResponse.Encoded.of(writer, page);
+            pages.add(encoded);
+            size += encoded.size();
+        }
+
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("etag", etag);
+        meta.put("unchanged", true);
+        ToolsListResult unchanged = new ToolsListResult(Collections.emptyList(), null);
+        unchanged.setMeta(meta);
+
+        return new McpToolsCatalog(etag, Collections.unmodifiableList(pages), McpPreEncodedResponse.Encoded.of(writer, unchanged), size);
+    }
+
+    /**
+     * @param cursor null for the first page.
+     */
+    McpPreEncodedResponse.Encoded page(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return pages.get(0);
+        }
+
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new McpRpcException(McpError.INVALID_PARAMS, "Invalid cursor");
+        }
+
+        int sep = decoded.lastIndexOf(':');
+        if (sep < 0 || !etag.equals(decoded.substring(0, sep))) {
+            throw new McpRpcException(McpError.INVALID_PARAMS, "Stale cursor, the tool list changed, please list again");
+        }
+
+        int page;
+        try {
+            page = Integer.parseInt(decoded.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            throw new McpRpcException(McpError.INVALID_PARAMS, "Invalid cursor");
+        }
+
+        if (page <= 0 || page >= pages.size()) {
+            throw new McpRpcException(McpError.INVALID_PARAMS, "Invalid cursor");
+        }
+        return pages.get(page);
+    }
+
+    /**
+     * @param ifNoneMatch value of an {@code If-None-Match} header, may be null.
+     */
+    boolean matches(String ifNoneMatch) {
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(StringUtils.strip(tag, "\""))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String cursor(String etag, int page) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((etag + ':' + page).getBytes(UTF_8));
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import ai.reakh.mcp.sdk.mcp.model.response.McpPreEncodedResponse;
+import lombok.Getter;
+
+/**
+ * A tools/list page or the unchanged answer, with the catalog snapshot it was taken from: the ETag and the 304
+ * decision must come from the same snapshot as the body, whatever was published in between.
+ */
+@Getter
+class McpToolsListResponse extends McpPreEncodedResponse {
+
+    private final McpToolsCatalog catalog;
+
+    private final boolean         unchanged;
+
+    McpToolsListResponse(Object id, McpToolsCatalog catalog, String cursor, boolean unchanged){
+        super(id, unchanged ? catalog.getUnchanged() : catalog.page(cursor));
+        this.catalog = catalog;
+        this.unchanged = unchanged;
+    }
+}
@@ -0,0 +1,21 @@
+package ai.reakh.mcp.sdk.mcp.exception;
+
+import lombok.Getter;
+
+/**
+ * Failure reported to the client with its own JSON-RPC error code instead of a generic internal error.
+ */
+@Getter
+public class McpRpcException extends RuntimeException {
+
+    public static final int TOOL_BUSY         = -32001;
+
+    public static final int DEADLINE_EXCEEDED = -32002;
+
+    private final int       code;
+
+    public McpRpcException(int code, String message){
+        super(message);
+        this.code = code;
+    }
+}
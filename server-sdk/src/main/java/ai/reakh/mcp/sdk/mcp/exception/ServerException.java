@@ -1,5 +1,8 @@
 package ai.reakh.mcp.sdk.mcp.exception;
 
+import lombok.Getter;
+
+@Getter
 public class ServerException extends Exception {
 
     private String    requestId;
@@ -0,0 +1,17 @@
+package ai.reakh.mcp.sdk.mcp.model.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Getter;
+
+@Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CancelledParams {
+
+    @JsonProperty("requestId")
+    private Object requestId;
+
+    @JsonProperty("reason")
+    private String reason;
+}
@@ -2,8 +2,13 @@ package ai.reakh.mcp.sdk.mcp.model.request;
 
 import ai.reakh.mcp.sdk.constants.McpClientMethod;
 import ai.reakh.mcp.sdk.mcp.model.McpProtocolBase;
+import ai.reakh.mcp.sdk.utils.JacksonHelper;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -14,6 +19,41 @@ public class McpRequest extends McpProtocolBase {
     @JsonProperty("method")
     private McpClientMethod method;
 
+    /**
+     * Materialized from {@link #rawParams} on first access only, as the plain map/list/scalar it always was.
+     */
     @JsonProperty("params")
     private Object          params;
+
+    /**
+     * The params as read from the wire, the tool path binds them from these tokens straight into the type it needs.
+     */
+    @Setter(AccessLevel.NONE)
+    private TokenBuffer     rawParams;
+
+    public Object getParams() {
+        if (params == null && rawParams != null) {
+            params = JacksonHelper.convert(rawParams, Object.class);
+        }
+        return params;
+    }
+
+    /**
+     * @return null if the params were set programmatically, or absent.
+     */
+    @JsonIgnore
+    public TokenBuffer getRawParams() {
+        return rawParams;
+    }
+
+    public void setParams(Object params) {
+        this.params = params;
+        this.rawParams = null;
+    }
+
+    @JsonSetter("params")
+    private void readParams(TokenBuffer rawParams) {
+        this.params = null;
+        this.rawParams = rawParams;
+    }
 }
@@ -1,17 +1,100 @@
 package ai.reakh.mcp.sdk.mcp.model.request;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
+import ai.reakh.mcp.sdk.utils.JacksonHelper;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 @Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class ToolCallParams {
 
     @JsonProperty("name")
     private String              name;
 
+    /**
+     * Kept as raw tokens, the tool binder reads them straight into its own argument type.
+     */
+    @Getter(AccessLevel.NONE)
     @JsonProperty("arguments")
-    private Map<String, Object> arguments;
+    private TokenBuffer         arguments;
+
+    @JsonProperty("_meta")
+    private Map<String, Object> meta;
+
+    /**
+     * The raw argument tokens, re-readable through {@link TokenBuffer#asParser()}.
+     */
+    @JsonIgnore
+    public TokenBuffer getRawArguments() {
+        return arguments;
+    }
+
+    /**
+     * The arguments as a map, as this accessor returned before they were kept as raw tokens. It converts on every
+     * call, prefer {@link #getRawArguments()}.
+     */
+    public Map<String, Object> getArguments() {
+        return arguments == null ? null : JacksonHelper.convert(arguments, new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+    @JsonIgnore
+    public Object getProgressToken() {
+        return meta != null ? meta.get("progressToken") : null;
+    }
+
+    /**
+     * Field selection asked by the client in {@code _meta.fields}, a list of paths or a comma separated string. Null
+     * if none, empty to turn off the tool default.
+     */
+    @JsonIgnore
+    public List<String> getFields() {
+        Object fields = meta != null ? meta.get("fields") : null;
+        if (fields instanceof String) {
+            return Arrays.asList(((String) fields).split(","));
+        }
+
+        if (fields instanceof Collection) {
+            List<String> list = new ArrayList<>();
+            for (Object field : (Collection<?>) fields) {
+                list.add(String.valueOf(field));
+            }
+            return list;
+        }
+        return null;
+    }
+
+    /**
+     * Deadline asked by the client in {@code _meta}, either absolute {@code deadline} (epoch millis) or relative
+     * {@code timeoutMs}. 0 if none.
+     */
+    @JsonIgnore
+    public long getClientDeadline() {
+        if (meta == null) {
+            return 0;
+        }
+
+        Object deadline = meta.get("deadline");
+        if (deadline instanceof Number) {
+            return ((Number) deadline).longValue();
+        }
+
+        Object timeout = meta.get("timeoutMs");
+        if (timeout instanceof Number && ((Number) timeout).longValue() > 0) {
+            return System.currentTimeMillis() + ((Number) timeout).longValue();
+        }
+        return 0;
+    }
 }
@@ -0,0 +1,14 @@
+package ai.reakh.mcp.sdk.mcp.model.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Getter;
+
+@Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ToolsListParams {
+
+    @JsonProperty("cursor")
+    private String cursor;
+}
@@ -7,9 +7,15 @@ import lombok.Getter;
 @Getter
 public class McpError {
 
-    public static final int METHOD_NOT_FOUND = -32601;
+    public static final int INVALID_REQUEST   = -32600;
 
-    public static final int INTERNAL_ERROR   = -32603;
+    public static final int METHOD_NOT_FOUND  = -32601;
+
+    public static final int INVALID_PARAMS    = -32602;
+
+    public static final int INTERNAL_ERROR    = -32603;
+
+    public static final int REQUEST_CANCELLED = -32800;
 
     @JsonProperty("code")
     private final int       code;
@@ -0,0 +1,25 @@
+package ai.reakh.mcp.sdk.mcp.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import ai.reakh.mcp.sdk.mcp.model.McpProtocolBase;
+import lombok.Getter;
+
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class McpNotification extends McpProtocolBase {
+
+    public static final String PROGRESS = "notifications/progress";
+
+    @JsonProperty("method")
+    private final String       method;
+
+    @JsonProperty("params")
+    private final Object       params;
+
+    public McpNotification(String method, Object params){
+        this.method = method;
+        this.params = params;
+    }
+}
@@ -0,0 +1,94 @@
+package ai.reakh.mcp.sdk.mcp.model.response;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import ai.reakh.mcp.sdk.mcp.model.McpProtocolBase;
+import lombok.Getter;
+
+/**
+ * Response whose result was encoded once up front, for results which never change after startup. Only the id is
+ * written per request; {@link #writeTo(OutputStream, ObjectWriter)} splices it between the pre-encoded bytes, the
+ * jackson serializer writes the cached result as a raw value.
+ */
+@Getter
+@JsonSerialize(using = McpPreEncodedResponse.Serializer.class)
+public class McpPreEncodedResponse extends McpProtocolBase {
+
+    private static final byte[] HEAD = "{\"jsonrpc\":\"2.0\",\"id\":".getBytes(UTF_8);
+
+    private static final byte[] RESULT = ",\"result\":".getBytes(UTF_8);
+
+    private final Encoded       result;
+
+    public McpPreEncodedResponse(Object id, Encoded result){
+        this.id = id;
+        this.result = result;
+    }
+
+    /**
+     * Write the whole JSON-RPC response, same bytes as jackson would produce for a {@link McpResponse}.
+     *
+     * @param idWriter used for string ids, which may need escaping.
+     */
+    public void writeTo(OutputStream out, ObjectWriter idWriter) throws IOException {
+        out.write(HEAD);
+        if (id == null) {
+            out.write(Encoded.NULL);
+        } else if (id instanceof Number) {
+            out.write(id.toString().getBytes(UTF_8));
+        } else {
+            out.write(idWriter.writeValueAsBytes(id));
+        }
+        out.write(RESULT);
+        out.write(result.utf8);
+        out.write('}');
+    }
+
+    /**
+     * A result serialized once, kept both as text (raw value for jackson) and UTF-8 bytes (direct stream writes).
+     */
+    public static class Encoded {
+
+        private static final byte[] NULL = "null".getBytes(UTF_8);
+
+        private final String        json;
+
+        private final byte[]        utf8;
+
+        private Encoded(String json){
+            this.json = json;
+            this.utf8 = json.getBytes(UTF_8);
+        }
+
+        public static Encoded of(ObjectWriter writer, Object result) throws IOException {
+            return new Encoded(writer.writeValueAsString(result));
+        }
+
+        public int size() {
+            return utf8.length;
+        }
+    }
+
+    public static class Serializer extends JsonSerializer<McpPreEncodedResponse> {
+
+        @Override
+        public void serialize(McpPreEncodedResponse value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("jsonrpc", value.getJsonrpc());
+            gen.writeFieldName("id");
+            serializers.defaultSerializeValue(value.getId(), gen);
+            gen.writeFieldName("result");
+            gen.writeRawValue(value.getResult().json);
+            gen.writeEndObject();
+        }
+    }
+}
@@ -1,24 +1,191 @@
 package ai.reakh.mcp.sdk.mcp.model.response;
 
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import lombok.Getter;
 
 @Getter
 public class ToolCallResult {
 
+    /**
+     * Leading whitespace looked at to tell a streamed JSON object from plain text.
+     */
+    private static final int          PEEK_CHARS        = 64;
+
+    private static final JsonFactory  JSON_FACTORY      = new JsonFactory();
+
     @JsonProperty("content")
-    private final List<ContentBlock> content;
+    private final List<ContentBlock>  content;
+
+    /**
+     * Upstream JSON object embedded as is, null for text results.
+     */
+    @JsonProperty("structuredContent")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final RawJson             structuredContent;
+
+    /**
+     * The tool failed, {@link #content} tells why; left out when false.
+     */
+    @JsonProperty("isError")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private final boolean             error;
 
-    private ToolCallResult(List<ContentBlock> content){
+    @JsonProperty("_meta")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Map<String, Object> meta;
+
+    private ToolCallResult(List<ContentBlock> content, RawJson structuredContent){
+        this(content, structuredContent, false, null);
+    }
+
+    private ToolCallResult(List<ContentBlock> content, RawJson structuredContent, boolean error, Map<String, Object> meta){
         this.content = content;
+        this.structuredContent = structuredContent;
+        this.error = error;
+        this.meta = meta;
+    }
+
+    /**
+     * Same result carrying {@code _meta}, e.g. stats of the call.
+     */
+    public ToolCallResult withMeta(Map<String, Object> meta) {
+        return new ToolCallResult(content, structuredContent, error, meta);
+    }
+
+    /**
+     * Backed by a reader which is only read, and closed, while the result is serialized.
+     */
+    @JsonIgnore
+    public boolean isStreamed() {
+        if (structuredContent != null && structuredContent.json == null) {
+            return true;
+        }
+        for (ContentBlock block : content) {
+            if (block instanceof StreamedContentBlock) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Close the readers of a streamed result which was not written, e.g. the response failed before. No-op once
+     * written.
+     */
+    public void closeStream() {
+        if (structuredContent != null) {
+            closeQuietly(structuredContent.reader);
+            structuredContent.reader = null;
+        }
+        for (ContentBlock block : content) {
+            if (block instanceof StreamedContentBlock) {
+                closeQuietly(((StreamedContentBlock) block).reader);
+                ((StreamedContentBlock) block).reader = null;
+            }
+        }
+    }
+
+    private static void closeQuietly(Reader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
     }
 
     public static ToolCallResult fromText(String text) {
-        return new ToolCallResult(Collections.singletonList(new ContentBlock(text)));
+        return new ToolCallResult(Collections.singletonList(new ContentBlock(text)), null);
+    }
+
+    /**
+     * Failed call, e.g. a structured tool whose upstream did not answer a JSON object; {@code text} says why.
+     */
+    public static ToolCallResult fromError(String text) {
+        return new ToolCallResult(Collections.singletonList(new ContentBlock(text)), null, true, null);
+    }
+
+    /**
+     * Result whose text is read from {@code text} while the response is serialized, escaped chunk by chunk straight
+     * into the output. It can be written once only and closes the reader afterwards.
+     */
+    public static ToolCallResult fromStream(Reader text) {
+        return new ToolCallResult(Collections.singletonList(new StreamedContentBlock(text)), null);
+    }
+
+    /**
+     * Structured result, {@code json} must be a JSON object as checked by {@link #isJsonObject(String)}; it is written
+     * raw, not re-parsed nor escaped.
+     *
+     * @param withText also repeat it as a text block, for clients predating {@code structuredContent}.
+     */
+    public static ToolCallResult fromJson(String json, boolean withText) {
+        List<ContentBlock> content = withText ? Collections.singletonList(new ContentBlock(json)) : Collections.emptyList();
+        return new ToolCallResult(content, new RawJson(json, null));
+    }
+
+    /**
+     * Streamed variant of {@link #fromJson(String, boolean)} without the text block. The object is copied token by
+     * token while written, a body which turns out not to be one JSON object fails the write. A body which does not
+     * start with a JSON object is streamed as the text of an error result instead.
+     */
+    public static ToolCallResult fromJsonStream(Reader json) throws IOException {
+        PushbackReader reader = new PushbackReader(json, PEEK_CHARS);
+        char[] head = new char[PEEK_CHARS];
+        int n = 0;
+        int c;
+        while (n < PEEK_CHARS && (c = reader.read()) >= 0) {
+            head[n++] = (char) c;
+            if (!Character.isWhitespace(c)) {
+                break;
+            }
+        }
+        reader.unread(head, 0, n);
+
+        if (n > 0 && head[n - 1] == '{') {
+            return new ToolCallResult(Collections.emptyList(), new RawJson(null, reader));
+        }
+        return new ToolCallResult(Collections.singletonList(new StreamedContentBlock(reader)), null, true, null);
+    }
+
+    /**
+     * True if {@code text} is exactly one well-formed JSON object, so it can be embedded raw without breaking or
+     * extending the response around it.
+     */
+    public static boolean isJsonObject(String text) {
+        if (text == null) {
+            return false;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
     }
 
     @Getter
@@ -34,4 +201,85 @@ public class ToolCallResult {
             this.text = text;
         }
     }
+
+    /**
+     * Text block backed by a reader, {@link #getText()} is null.
+     */
+    @JsonSerialize(using = StreamedContentBlock.Serializer.class)
+    public static class StreamedContentBlock extends ContentBlock {
+
+        private Reader reader;
+
+        public StreamedContentBlock(Reader reader){
+            super(null);
+            this.reader = reader;
+        }
+
+        public static class Serializer extends JsonSerializer<StreamedContentBlock> {
+
+            @Override
+            public void serialize(StreamedContentBlock value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+                Reader reader = value.reader;
+                if (reader == null) {
+                    throw new IOException("Streamed tool result already written.");
+                }
+
+                value.reader = null;
+                try (Reader r = reader) {
+                    gen.writeStartObject();
+                    gen.writeStringField("type", value.getType());
+                    gen.writeFieldName("text");
+                    // reads and escapes through the generator buffer, the text is never held as a whole
+                    gen.writeString(r, -1);
+                    gen.writeEndObject();
+                }
+            }
+        }
+    }
+
+    /**
+     * JSON object, either held as validated text and written verbatim, or streamed once from a reader.
+     */
+    @JsonSerialize(using = RawJson.Serializer.class)
+    public static class RawJson {
+
+        @Getter
+        private final String json;
+
+        private Reader       reader;
+
+        private RawJson(String json, Reader reader){
+            this.json = json;
+            this.reader = reader;
+        }
+
+        public static class Serializer extends JsonSerializer<RawJson> {
+
+            @Override
+            public void serialize(RawJson value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+                if (value.json != null) {
+                    gen.writeRawValue(value.json);
+                    return;
+                }
+
+                Reader reader = value.reader;
+                if (reader == null) {
+                    throw new IOException("Streamed tool result already written.");
+                }
+
+                value.reader = null;
+                // copied through a parser, a malformed or truncated body can not leak raw into the response
+                try (Reader r = reader; JsonParser parser = JSON_FACTORY.createParser(r)) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        throw new JsonParseException(parser, "Structured tool result is not a JSON object.");
+                    }
+
+                    gen.copyCurrentStructure(parser);
+                    if (parser.nextToken() != null) {
+                        throw new JsonParseException(parser, "Trailing content after the structured tool result.");
+                    }
+                }
+            }
+        }
+    }
 }
@@ -1,10 +1,14 @@
 package ai.reakh.mcp.sdk.mcp.model.response;
 
 import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -12,6 +16,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import ai.reakh.mcp.sdk.mcp.McpI18nProxy;
 import ai.reakh.mcp.sdk.mcp.json.JsonSchemaElement;
 import ai.reakh.mcp.sdk.utils.JsonSchemaElementUtils;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -21,11 +26,15 @@ import lombok.Setter;
 public class ToolsListResult {
 
     @JsonProperty("tools")
-    private List<ToolDesc> tools;
+    private List<ToolDesc>      tools;
 
     @JsonProperty("nextCursor")
     @JsonInclude(JsonInclude.Include.NON_NULL)
-    private String         nextCursor;
+    private String              nextCursor;
+
+    @JsonProperty("_meta")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Object> meta;
 
     public ToolsListResult(){
     }
@@ -41,27 +50,139 @@ public class ToolsListResult {
     public static class ToolDesc {
 
         @JsonProperty("name")
-        private String              name;
+        private String                 name;
 
         @JsonProperty("description")
-        private String              description;
+        private String                 description;
 
         @JsonProperty("inputSchema")
-        private Map<String, Object> inputSchema;
+        private Map<String, Object>    inputSchema;
+
+        /**
+         * Shape of the {@code structuredContent} of structured tools.
+         */
+        @JsonProperty("outputSchema")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Map<String, Object>    outputSchema;
+
+        /**
+         * Set while the schemas of a lazy desc are not built yet.
+         */
+        @JsonIgnore
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private volatile boolean       pending;
+
+        @JsonIgnore
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private Parameter              pendingInput;
+
+        @JsonIgnore
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private Type                   pendingOutput;
+
+        @JsonIgnore
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private McpI18nProxy           pendingI18nProxy;
+
+        @JsonIgnore
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private final ReentrantLock    schemaLock = new ReentrantLock();
 
         public ToolDesc(){
         }
 
         public ToolDesc(String name, String description, Parameter input, McpI18nProxy i18nProxy){
+            this(name, description, input, null, i18nProxy);
+        }
+
+        /**
+         * @param output type of the structured result, null if the tool returns text.
+         */
+        public ToolDesc(String name, String description, Parameter input, Type output, McpI18nProxy i18nProxy){
+            this.name = name;
+            this.description = description;
+            this.inputSchema = buildInputSchema(input, i18nProxy);
+            this.outputSchema = buildOutputSchema(output, i18nProxy);
+        }
+
+        /**
+         * Desc with schemas computed elsewhere, e.g. at build time.
+         */
+        public ToolDesc(String name, String description, Map<String, Object> inputSchema, Map<String, Object> outputSchema){
             this.name = name;
             this.description = description;
-            if (input != null) {
-                JsonSchemaElement paramsSchema = JsonSchemaElementUtils
-                    .jsonSchemaElementFrom(input.getType(), input.getParameterizedType(), null, false, new LinkedHashMap<>(), i18nProxy);
-                this.inputSchema = JsonSchemaElementUtils.toMap(paramsSchema, false /* strict */);
-            } else {
-                this.inputSchema = null;
+            this.inputSchema = inputSchema;
+            this.outputSchema = outputSchema;
+        }
+
+        /**
+         * Desc whose schemas are only built on first access, by exactly one thread.
+         */
+        public static ToolDesc lazy(String name, String description, Parameter input, Type output, McpI18nProxy i18nProxy) {
+            ToolDesc desc = new ToolDesc();
+            desc.name = name;
+            desc.description = description;
+            desc.pendingI18nProxy = i18nProxy;
+            desc.pendingInput = input;
+            desc.pendingOutput = output;
+            desc.pending = true;
+            return desc;
+        }
+
+        public Map<String, Object> getInputSchema() {
+            buildPendingSchemas();
+            return inputSchema;
+        }
+
+        public Map<String, Object> getOutputSchema() {
+            buildPendingSchemas();
+            return outputSchema;
+        }
+
+        private void buildPendingSchemas() {
+            if (!pending) {
+                return;
+            }
+
+            schemaLock.lock();
+            try {
+                if (pending) {
+                    this.inputSchema = buildInputSchema(pendingInput, pendingI18nProxy);
+                    this.outputSchema = buildOutputSchema(pendingOutput, pendingI18nProxy);
+                    this.pendingInput = null;
+                    this.pendingOutput = null;
+                    this.pendingI18nProxy = null;
+                    // volatile write, publishes the schemas
+                    this.pending = false;
+                }
+            } finally {
+                schemaLock.unlock();
             }
         }
+
+        private static Map<String, Object> buildInputSchema(Parameter input, McpI18nProxy i18nProxy) {
+            if (input == null) {
+                return null;
+            }
+
+            JsonSchemaElement paramsSchema = JsonSchemaElementUtils
+                .jsonSchemaElementFrom(input.getType(), input.getParameterizedType(), null, false, new LinkedHashMap<>(), i18nProxy);
+            return JsonSchemaElementUtils.toMap(paramsSchema, false /* strict */);
+        }
+
+        private static Map<String, Object> buildOutputSchema(Type output, McpI18nProxy i18nProxy) {
+            if (output == null) {
+                return null;
+            }
+
+            Class<?> clazz = output instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) output).getRawType() : (Class<?>) output;
+            JsonSchemaElement resultSchema = JsonSchemaElementUtils.jsonSchemaElementFrom(clazz, output, null, false, new LinkedHashMap<>(), i18nProxy);
+            return JsonSchemaElementUtils.toMap(resultSchema, false /* strict */);
+        }
     }
 }
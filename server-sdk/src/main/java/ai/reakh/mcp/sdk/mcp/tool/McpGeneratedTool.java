@@ -0,0 +1,220 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import ai.reakh.mcp.sdk.constants.McpResultFormat;
+import ai.reakh.mcp.sdk.mcp.McpI18nProxy;
+import lombok.Getter;
+
+/**
+ * Everything about one {@code @McpTool} method as computed at build time by the sdk annotation processor: the
+ * annotation values, the full api path, the input schema and a reflection-free invoker.
+ */
+@Getter
+public class McpGeneratedTool {
+
+    /**
+     * Prefix of descriptions in the schemas which are i18n keys, resolved when the tool is registered.
+     */
+    public static final String    I18N_PLACEHOLDER_PREFIX = "i18n:";
+
+    private final String          name;
+
+    private final String          label;
+
+    private final String          apiPath;
+
+    /**
+     * Type of the {@code @RequestBody} parameter, null if there is none.
+     */
+    private final Type            bodyType;
+
+    /**
+     * Input schema json, null if there is no {@code @RequestBody} parameter.
+     */
+    private final String          inputSchema;
+
+    /**
+     * Output schema json of a structured tool, null otherwise.
+     */
+    private final String          outputSchema;
+
+    private final boolean         structured;
+
+    private final List<String>    fields;
+
+    private final McpResultFormat resultFormat;
+
+    private final int             maxConcurrency;
+
+    private final boolean         adaptiveConcurrency;
+
+    private final long            timeoutMillis;
+
+    private final long            cacheTtlMillis;
+
+    private final boolean         coalesce;
+
+    /**
+     * Null if the method can not be called in-process, it stays on the http path then.
+     */
+    private final McpToolInvoker  invoker;
+
+    private McpGeneratedTool(Builder builder){
+        this.name = builder.name;
+        this.label = builder.label;
+        this.apiPath = builder.apiPath;
+        this.bodyType = builder.bodyType;
+        this.inputSchema = builder.inputSchema;
+        this.outputSchema = builder.outputSchema;
+        this.structured = builder.structured;
+        this.fields = builder.fields;
+        this.resultFormat = builder.resultFormat;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.adaptiveConcurrency = builder.adaptiveConcurrency;
+        this.timeoutMillis = builder.timeoutMillis;
+        this.cacheTtlMillis = builder.cacheTtlMillis;
+        this.coalesce = builder.coalesce;
+        this.invoker = builder.invoker;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Replace the i18n placeholders of a parsed schema, in place.
+     */
+    @SuppressWarnings("unchecked")
+    public static void resolveI18n(Object schema, McpI18nProxy i18nProxy) {
+        if (schema instanceof Map) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) schema).entrySet()) {
+                Object value = entry.getValue();
+                if ("description".equals(entry.getKey()) && value instanceof String && ((String) value).startsWith(I18N_PLACEHOLDER_PREFIX)) {
+                    entry.setValue(i18nProxy.getMessage(((String) value).substring(I18N_PLACEHOLDER_PREFIX.length())));
+                } else {
+                    resolveI18n(value, i18nProxy);
+                }
+            }
+        } else if (schema instanceof List) {
+            for (Object item : (List<Object>) schema) {
+                resolveI18n(item, i18nProxy);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final String   name;
+
+        private String         label;
+
+        private String         apiPath;
+
+        private Type           bodyType;
+
+        private String         inputSchema;
+
+        private String         outputSchema;
+
+        private boolean        structured;
+
+        private List<String>   fields = Collections.emptyList();
+
+        private McpResultFormat resultFormat = McpResultFormat.JSON;
+
+        private int            maxConcurrency;
+
+        private boolean        adaptiveConcurrency;
+
+        private long           timeoutMillis;
+
+        private long           cacheTtlMillis;
+
+        private boolean        coalesce;
+
+        private McpToolInvoker invoker;
+
+        private Builder(String name){
+            this.name = name;
+        }
+
+        public Builder label(String label) {
+            this.label = label;
+            return this;
+        }
+
+        public Builder apiPath(String apiPath) {
+            this.apiPath = apiPath;
+            return this;
+        }
+
+        public Builder bodyType(Type bodyType) {
+            this.bodyType = bodyType;
+            return this;
+        }
+
+        public Builder inputSchema(String inputSchema) {
+            this.inputSchema = inputSchema;
+            return this;
+        }
+
+        public Builder outputSchema(String outputSchema) {
+            this.outputSchema = outputSchema;
+            return this;
+        }
+
+        public Builder structured(boolean structured) {
+            this.structured = structured;
+            return this;
+        }
+
+        public Builder fields(String... fields) {
+            this.fields = Arrays.asList(fields);
+            return this;
+        }
+
+        public Builder resultFormat(McpResultFormat resultFormat) {
+            this.resultFormat = resultFormat;
+            return this;
+        }
+
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder adaptiveConcurrency(boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+            return this;
+        }
+
+        public Builder timeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        public Builder cacheTtlMillis(long cacheTtlMillis) {
+            this.cacheTtlMillis = cacheTtlMillis;
+            return this;
+        }
+
+        public Builder coalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+            return this;
+        }
+
+        public Builder invoker(McpToolInvoker invoker) {
+            this.invoker = invoker;
+            return this;
+        }
+
+        public McpGeneratedTool build() {
+            return new McpGeneratedTool(this);
+        }
+    }
+}
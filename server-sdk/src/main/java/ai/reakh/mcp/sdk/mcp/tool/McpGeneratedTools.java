@@ -0,0 +1,44 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tools of one provider class, generated at build time by the sdk annotation processor and listed in
+ * {@code META-INF/services}. When present, the runtime registers the provider from it instead of scanning the class
+ * with reflection.
+ */
+@Slf4j
+public abstract class McpGeneratedTools {
+
+    public abstract Class<?> providerType();
+
+    public abstract List<McpGeneratedTool> tools();
+
+    /**
+     * @return generated tools by provider class, empty if the processor did not run.
+     */
+    public static Map<Class<?>, McpGeneratedTools> load(ClassLoader classLoader) {
+        Map<Class<?>, McpGeneratedTools> result = new HashMap<>();
+        Iterator<McpGeneratedTools> it = ServiceLoader.load(McpGeneratedTools.class, classLoader).iterator();
+        while (true) {
+            try {
+                if (!it.hasNext()) {
+                    break;
+                }
+                McpGeneratedTools tools = it.next();
+                result.put(tools.providerType(), tools);
+            } catch (ServiceConfigurationError e) {
+                // e.g. a stale entry, the provider falls back to reflection
+                log.warn("[MCP] Load generated tools failed, skip it.msg:{}", e.getMessage());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,246 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tool calls currently running, keyed by session and JSON-RPC id, so a {@code notifications/cancelled} can abort the
+ * upstream http call or interrupt the in-process invocation. Calls past their deadline are aborted the same way.
+ */
+public class McpInFlightCalls {
+
+    private static final ScheduledThreadPoolExecutor DEADLINE_TIMER  = createDeadlineTimer();
+
+    private final Map<String, Registration>          calls           = new ConcurrentHashMap<>();
+
+    private final LongAdder                          cancelRequested = new LongAdder();
+
+    private final LongAdder                          cancelled       = new LongAdder();
+
+    private final LongAdder                          expired         = new LongAdder();
+
+    public static String key(String sessionKey, Object id) {
+        return sessionKey + '\u0000' + id;
+    }
+
+    public Registration register(String key) {
+        Registration reg = new Registration(key);
+        if (key != null) {
+            calls.put(key, reg);
+        }
+        return reg;
+    }
+
+    /**
+     * @return true if a running call was found and cancelled.
+     */
+    public boolean cancel(String key) {
+        cancelRequested.increment();
+        Registration reg = calls.get(key);
+        return reg != null && reg.cancel();
+    }
+
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * Cancel notifications received, whether or not the call was still running.
+     */
+    public long getCancelRequestedCount() {
+        return cancelRequested.sum();
+    }
+
+    /**
+     * Calls actually aborted while in flight.
+     */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Calls aborted because their deadline passed.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    private static ScheduledThreadPoolExecutor createDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "mcp-deadline-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        // calls finishing in time are the norm, do not keep their timers around
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    public class Registration implements AutoCloseable {
+
+        private final String        key;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Runnable            canceller;
+
+        private Thread              thread;
+
+        private boolean             closed;
+
+        private volatile boolean    cancelled;
+
+        private volatile boolean    expired;
+
+        private volatile long       deadlineMillis;
+
+        private ScheduledFuture<?>  deadlineTask;
+
+        private Registration(String key){
+            this.key = key;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * True once the deadline passed, also when OkHttp's call timeout fired a moment before the deadline timer.
+         */
+        public boolean isExpired() {
+            return expired || deadlineMillis > 0 && System.currentTimeMillis() >= deadlineMillis;
+        }
+
+        /**
+         * Abort the call once the absolute deadline (epoch millis) has passed.
+         */
+        public void expireAt(long deadlineMillis) {
+            this.deadlineMillis = deadlineMillis;
+            long delay = deadlineMillis - System.currentTimeMillis();
+            if (delay <= 0) {
+                expire();
+                return;
+            }
+
+            ScheduledFuture<?> task = DEADLINE_TIMER.schedule(this::expire, delay, TimeUnit.MILLISECONDS);
+            lock.lock();
+            try {
+                if (closed) {
+                    task.cancel(false);
+                } else {
+                    deadlineTask = task;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Action aborting the call, runs right away if the call was cancelled already.
+         */
+        public void onCancel(Runnable action) {
+            lock.lock();
+            try {
+                this.canceller = action;
+                if ((cancelled || expired) && !closed) {
+                    action.run();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Interrupt the current thread on cancel; the interrupt flag is cleared again on {@link #close()}.
+         */
+        public void bindCurrentThread() {
+            Thread current = Thread.currentThread();
+            this.thread = current;
+            onCancel(current::interrupt);
+        }
+
+        /**
+         * Undo {@link #bindCurrentThread()} once the call left a pooled thread, so a later cancel does not interrupt
+         * what the thread runs next. An interrupt the call got is cleared.
+         */
+        public void unbindCurrentThread() {
+            Thread current = Thread.currentThread();
+            lock.lock();
+            try {
+                if (thread != current) {
+                    return;
+                }
+                thread = null;
+                canceller = null;
+            } finally {
+                lock.unlock();
+            }
+
+            if (cancelled || expired) {
+                Thread.interrupted();
+            }
+        }
+
+        public boolean cancel() {
+            lock.lock();
+            try {
+                if (closed || cancelled || expired) {
+                    return false;
+                }
+
+                cancelled = true;
+                McpInFlightCalls.this.cancelled.increment();
+                if (canceller != null) {
+                    canceller.run();
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void expire() {
+            lock.lock();
+            try {
+                if (closed || cancelled || expired) {
+                    return;
+                }
+
+                expired = true;
+                McpInFlightCalls.this.expired.increment();
+                if (canceller != null) {
+                    canceller.run();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                closed = true;
+                if (deadlineTask != null) {
+                    deadlineTask.cancel(false);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (key != null) {
+                calls.remove(key, this);
+            }
+
+            // do not leak the interrupt of a cancelled in-process call into the container thread
+            if (thread == Thread.currentThread() && (cancelled || expired)) {
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.io.IOException;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Binds the raw {@code arguments} tokens of a tools/call straight into the {@code @RequestBody} type of the tool. The
+ * reader is resolved once when the tool is registered.
+ */
+public class McpToolArgumentBinder {
+
+    private static final McpToolArgumentBinder NONE   = new McpToolArgumentBinder(null);
+
+    private final ObjectReader                 reader;
+
+    private McpToolArgumentBinder(ObjectReader reader){
+        this.reader = reader;
+    }
+
+    public static McpToolArgumentBinder of(ObjectMapper mapper, Parameter bodyParam) {
+        if (bodyParam == null) {
+            return NONE;
+        }
+        return of(mapper, bodyParam.getParameterizedType());
+    }
+
+    /**
+     * @param bodyType type of the {@code @RequestBody} parameter, null if there is none.
+     */
+    public static McpToolArgumentBinder of(ObjectMapper mapper, Type bodyType) {
+        if (bodyType == null) {
+            return NONE;
+        }
+        return new McpToolArgumentBinder(mapper.readerFor(mapper.constructType(bodyType)));
+    }
+
+    public Object bind(TokenBuffer arguments) throws IOException {
+        if (reader == null || arguments == null) {
+            return null;
+        }
+        return reader.readValue(arguments.asParser());
+    }
+}
@@ -0,0 +1,180 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import ai.reakh.mcp.sdk.mcp.model.response.ToolCallResult;
+
+/**
+ * Single-flight for idempotent tools: while a call is running, identical calls attach to it instead of issuing their
+ * own upstream request. Every caller gets its own future; cancelling it detaches that caller only, the shared call is
+ * aborted once the last caller left. The entry is dropped as soon as the call completes, results are not kept.
+ */
+public class McpToolCallCoalescer {
+
+    private final Map<String, Flight> running   = new ConcurrentHashMap<>();
+
+    private final LongAdder           executed  = new LongAdder();
+
+    private final LongAdder           coalesced = new LongAdder();
+
+    private final LongAdder           abandoned = new LongAdder();
+
+    /**
+     * @param key identity of the call, identical calls share it.
+     * @param call starts the call, only invoked if no identical call is running.
+     * @return the caller's view of the shared call, cancel it when the caller gives up.
+     */
+    public CompletableFuture<ToolCallResult> join(String key, Supplier<SharedCall> call) {
+        while (true) {
+            Flight flight = running.get(key);
+            if (flight != null) {
+                CompletableFuture<ToolCallResult> attached = flight.attach();
+                if (attached != null) {
+                    coalesced.increment();
+                    return attached;
+                }
+                // its last caller just left, start over
+                running.remove(key, flight);
+                continue;
+            }
+
+            Flight mine = new Flight(key);
+            if (running.putIfAbsent(key, mine) != null) {
+                continue;
+            }
+
+            executed.increment();
+            CompletableFuture<ToolCallResult> attached = mine.attach();
+            SharedCall shared;
+            try {
+                shared = call.get();
+            } catch (RuntimeException | Error e) {
+                shared = new SharedCall(CompletableFuture.failedFuture(e), null);
+            }
+            mine.start(shared);
+            return attached;
+        }
+    }
+
+    public int size() {
+        return running.size();
+    }
+
+    /**
+     * Calls which actually ran.
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Calls served by attaching to an identical running call.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Shared calls aborted because every caller left before they completed.
+     */
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    /**
+     * A started shared call and how to abort it.
+     */
+    public static final class SharedCall {
+
+        private final CompletableFuture<ToolCallResult> result;
+
+        private final Runnable                          abort;
+
+        /**
+         * @param abort aborts the running call, null if it can not be aborted.
+         */
+        public SharedCall(CompletableFuture<ToolCallResult> result, Runnable abort){
+            this.result = result;
+            this.abort = abort;
+        }
+    }
+
+    private final class Flight {
+
+        private final String                            key;
+
+        private final CompletableFuture<ToolCallResult> result = new CompletableFuture<>();
+
+        private int                                     callers;
+
+        private boolean                                 abandoned;
+
+        private Runnable                                abort;
+
+        private Flight(String key){
+            this.key = key;
+        }
+
+        /**
+         * @return null if the call was abandoned already.
+         */
+        private CompletableFuture<ToolCallResult> attach() {
+            synchronized (this) {
+                if (abandoned) {
+                    return null;
+                }
+                callers++;
+            }
+
+            CompletableFuture<ToolCallResult> caller = result.copy();
+            caller.whenComplete((r, t) -> {
+                if (caller.isCancelled()) {
+                    detach();
+                }
+            });
+            return caller;
+        }
+
+        private void start(SharedCall shared) {
+            boolean abortNow;
+            synchronized (this) {
+                abort = shared.abort;
+                abortNow = abandoned;
+            }
+            if (abortNow && shared.abort != null) {
+                shared.abort.run();
+            }
+
+            shared.result.whenComplete((r, t) -> {
+                // remove first, a call arriving after completion must not get a stale result
+                running.remove(key, this);
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(r);
+                }
+            });
+        }
+
+        private void detach() {
+            Runnable action;
+            synchronized (this) {
+                if (--callers > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                action = abort;
+            }
+
+            running.remove(key, this);
+            McpToolCallCoalescer.this.abandoned.increment();
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+
+import org.springframework.web.bind.annotation.RequestBody;
+
+import ai.reakh.mcp.sdk.annotation.McpTool;
+import ai.reakh.mcp.sdk.constants.McpResultFormat;
+import ai.reakh.mcp.sdk.utils.JsonSchemaElementUtils;
+import jakarta.servlet.ServletRequest;
+import lombok.Getter;
+
+/**
+ * One registered MCP tool. Keeps the upstream api path for the http fallback and, when the tool lives in this process,
+ * a pre-bound {@link MethodHandle} so the call can skip the http loopback.
+ */
+@Getter
+public class McpToolDefinition {
+
+    private static final int              ARG_BODY         = 1;
+
+    private static final int              ARG_REQUEST      = 2;
+
+    private static final AtomicLong       VERSIONS         = new AtomicLong();
+
+    /**
+     * Unique per definition, a tool re-registered under the same name gets a new one: results cached or coalesced
+     * for the replaced definition are not served for the new one.
+     */
+    private final long                    version          = VERSIONS.incrementAndGet();
+
+    private final String                  name;
+
+    private final String                  apiPath;
+
+    private final Object                  bean;
+
+    private final Method                  method;
+
+    private final Parameter               bodyParam;
+
+    private final McpToolArgumentBinder   binder;
+
+    /**
+     * Bulkhead of the tool, null when unlimited.
+     */
+    private final McpToolLimiter          limiter;
+
+    /**
+     * Time budget of one call, 0 for the sdk default.
+     */
+    private final long                    timeoutMillis;
+
+    /**
+     * How long results may be served from the result cache, 0 when not cached.
+     */
+    private final long                    cacheTtlMillis;
+
+    /**
+     * Identical concurrent calls share one execution.
+     */
+    private final boolean                 coalesce;
+
+    /**
+     * Results are returned as {@code structuredContent}.
+     */
+    private final boolean                 structured;
+
+    /**
+     * Default field selection of the results, null for whole results.
+     */
+    private final McpToolResultProjection projection;
+
+    private final McpResultFormat         resultFormat;
+
+    private final MethodHandle            invoker;
+
+    /**
+     * Reflection-free invoker of a tool generated at build time, used instead of {@link #invoker}.
+     */
+    private final McpToolInvoker          generatedInvoker;
+
+    private final int[]                   argKinds;
+
+    /**
+     * Tool served by another process, only reachable through the http api.
+     */
+    public McpToolDefinition(String name, String apiPath){
+        this.name = name;
+        this.apiPath = apiPath;
+        this.bean = null;
+        this.method = null;
+        this.bodyParam = null;
+        this.binder = null;
+        this.limiter = null;
+        this.timeoutMillis = 0;
+        this.cacheTtlMillis = 0;
+        this.coalesce = false;
+        this.structured = false;
+        this.projection = null;
+        this.resultFormat = McpResultFormat.JSON;
+        this.invoker = null;
+        this.generatedInvoker = null;
+        this.argKinds = null;
+    }
+
+    public McpToolDefinition(String name, String apiPath, Object bean, Method method, Parameter bodyParam, McpToolArgumentBinder binder, McpTool mcpTool){
+        this.name = name;
+        this.apiPath = apiPath;
+        this.bean = bean;
+        this.method = method;
+        this.bodyParam = bodyParam;
+        this.binder = binder;
+        this.limiter = McpToolLimiter.of(mcpTool);
+        this.timeoutMillis = mcpTool.timeoutMillis();
+        this.cacheTtlMillis = mcpTool.cacheTtlMillis();
+        this.coalesce = mcpTool.coalesce();
+        this.structured = mcpTool.structured() && outputTypeOf(method) != null;
+        this.projection = McpToolResultProjection.of(Arrays.asList(mcpTool.fields()));
+        this.resultFormat = mcpTool.resultFormat();
+        this.argKinds = resolveArgKinds(method);
+        this.invoker = argKinds != null ? bindInvoker(bean, method) : null;
+        this.generatedInvoker = null;
+    }
+
+    /**
+     * Tool of a provider processed at build time, no reflection involved.
+     */
+    public McpToolDefinition(McpGeneratedTool tool, Object bean, McpToolArgumentBinder binder){
+        this.name = tool.getName();
+        this.apiPath = tool.getApiPath();
+        this.bean = bean;
+        this.method = null;
+        this.bodyParam = null;
+        this.binder = binder;
+        this.limiter = McpToolLimiter.of(tool.getMaxConcurrency(), tool.isAdaptiveConcurrency());
+        this.timeoutMillis = tool.getTimeoutMillis();
+        this.cacheTtlMillis = tool.getCacheTtlMillis();
+        this.coalesce = tool.isCoalesce();
+        this.structured = tool.isStructured();
+        this.projection = McpToolResultProjection.of(tool.getFields());
+        this.resultFormat = tool.getResultFormat();
+        this.invoker = null;
+        this.generatedInvoker = tool.getInvoker();
+        this.argKinds = null;
+    }
+
+    public boolean isDirectInvocable() {
+        return invoker != null || generatedInvoker != null;
+    }
+
+    /**
+     * Invoke the tool method in-process.
+     *
+     * @param body the already bound {@code @RequestBody} argument, may be null.
+     * @param request the current request, passed to {@link ServletRequest} parameters.
+     * @return the raw return value of the tool method.
+     */
+    public Object invoke(Object body, ServletRequest request) throws Exception {
+        if (generatedInvoker != null) {
+            return generatedInvoker.invoke(bean, body, request);
+        }
+
+        if (invoker == null) {
+            throw new IllegalStateException("Tool " + name + " can not be invoked in-process.");
+        }
+
+        Object[] args = new Object[argKinds.length];
+        for (int i = 0; i < argKinds.length; i++) {
+            switch (argKinds[i]) {
+                case ARG_BODY:
+                    args[i] = body;
+                    break;
+                case ARG_REQUEST:
+                    args[i] = request;
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported argument kind " + argKinds[i] + " of tool " + name);
+            }
+        }
+
+        try {
+            return (Object) invoker.invokeExact(args);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Type of the structured result: the return type, unwrapped from {@link ResponseEntity}.
+     *
+     * @return null if it is not a JSON object with a known shape, e.g. a string, collection or map.
+     */
+    public static Type outputTypeOf(Method method) {
+        ResolvableType type = ResolvableType.forMethodReturnType(method);
+        if (ResponseEntity.class.equals(type.resolve())) {
+            type = type.getGeneric(0);
+        }
+
+        Class<?> clazz = type.resolve();
+        if (clazz == null || clazz.isPrimitive() || clazz.isArray() || clazz.isEnum() || !JsonSchemaElementUtils.isCustomClass(clazz)
+            || Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz) || CharSequence.class.isAssignableFrom(clazz)) {
+            return null;
+        }
+        return type.getType();
+    }
+
+    /**
+     * Only methods whose parameters are all resolvable without spring mvc (request body and servlet request) can be
+     * called directly; the others stay on the http path. So does a validated body, only spring mvc validates it.
+     */
+    private static int[] resolveArgKinds(Method method) {
+        Parameter[] params = method.getParameters();
+        int[] kinds = new int[params.length];
+        for (int i = 0; i < params.length; i++) {
+            Parameter p = params[i];
+            if (p.isAnnotationPresent(RequestBody.class)) {
+                if (isValidated(p)) {
+                    return null;
+                }
+                kinds[i] = ARG_BODY;
+            } else if (ServletRequest.class.isAssignableFrom(p.getType())) {
+                kinds[i] = ARG_REQUEST;
+            } else {
+                return null;
+            }
+        }
+        return kinds;
+    }
+
+    /**
+     * Same rule as spring mvc: {@code @Validated} or any annotation whose name starts with "Valid", e.g.
+     * {@code @Valid}.
+     */
+    private static boolean isValidated(Parameter param) {
+        for (Annotation annotation : param.getAnnotations()) {
+            Class<? extends Annotation> type = annotation.annotationType();
+            if (Validated.class.equals(type) || type.getSimpleName().startsWith("Valid")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MethodHandle bindInvoker(Object bean, Method method) {
+        try {
+            if (!method.canAccess(bean)) {
+                method.setAccessible(true);
+            }
+
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(bean);
+            return handle.asSpreader(Object[].class, method.getParameterCount()).asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+}
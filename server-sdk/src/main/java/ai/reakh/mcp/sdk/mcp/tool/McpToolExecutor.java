@@ -0,0 +1,167 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs tool calls off the servlet thread, either on a bounded platform pool or, on a Java 21+ runtime, on virtual
+ * threads capped by a semaphore. The servlet request is exposed to spring's request context on the worker thread.
+ */
+@Slf4j
+public class McpToolExecutor {
+
+    private static final MethodHandle  NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    private final ExecutorService      executor;
+
+    private final Semaphore            permits;
+
+    @Getter
+    private final boolean              virtual;
+
+    /**
+     * Set on threads running a task of this executor, nested calls run inline there.
+     */
+    private final ThreadLocal<Boolean> worker               = new ThreadLocal<>();
+
+    private McpToolExecutor(ExecutorService executor, Semaphore permits, boolean virtual){
+        this.executor = executor;
+        this.permits = permits;
+        this.virtual = virtual;
+    }
+
+    /**
+     * Bounded platform pool, calls over the queue capacity run on the caller thread.
+     */
+    public static McpToolExecutor platform(int parallelism) {
+        AtomicInteger seq = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "mcp-tool-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        // caller runs keeps the queue bounded without ever rejecting a call
+        ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(parallelism * 32), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+        return new McpToolExecutor(executor, null, false);
+    }
+
+    /**
+     * One virtual thread per call, at most {@code maxConcurrency} of them running tool code at once. Falls back to a
+     * platform pool of {@code fallbackParallelism} when the runtime has no virtual threads.
+     */
+    public static McpToolExecutor virtual(int maxConcurrency, int fallbackParallelism) {
+        if (NEW_VIRTUAL_EXECUTOR == null) {
+            log.warn("[MCP] Virtual threads need a Java 21+ runtime, fall back to platform pool of {}.", fallbackParallelism);
+            return platform(fallbackParallelism);
+        }
+
+        try {
+            ExecutorService executor = (ExecutorService) NEW_VIRTUAL_EXECUTOR.invokeExact();
+            return new McpToolExecutor(executor, new Semaphore(maxConcurrency), true);
+        } catch (Throwable t) {
+            log.warn("[MCP] Create virtual thread executor failed, fall back to platform pool of {}.", fallbackParallelism, t);
+            return platform(fallbackParallelism);
+        }
+    }
+
+    public <T> Future<T> submit(HttpServletRequest request, Callable<T> task) {
+        return executor.submit(wrap(request, task));
+    }
+
+    /**
+     * Submit the task and expose it as a {@link CompletableFuture}; cancelling the future interrupts the task.
+     */
+    public <T> CompletableFuture<T> submitAsync(HttpServletRequest request, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Callable<T> wrapped = wrap(request, task);
+        Future<?> running = executor.submit(() -> {
+            try {
+                future.complete(wrapped.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        future.whenComplete((r, t) -> {
+            if (future.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Run the task on a thread of this executor without taking one of the permits, e.g. to serve a whole http request
+     * whose tool calls are then submitted with {@link #submit(HttpServletRequest, Callable)}.
+     */
+    public void execute(HttpServletRequest request, Runnable task) {
+        ServletRequestAttributes attributes = request != null ? new ServletRequestAttributes(request) : null;
+        executor.execute(() -> {
+            if (attributes != null) {
+                RequestContextHolder.setRequestAttributes(attributes);
+            }
+            try {
+                task.run();
+            } finally {
+                if (attributes != null) {
+                    RequestContextHolder.resetRequestAttributes();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true if the current thread runs a task submitted to this executor.
+     */
+    public boolean isWorkerThread() {
+        return worker.get() != null;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> Callable<T> wrap(HttpServletRequest request, Callable<T> task) {
+        ServletRequestAttributes attributes = request != null ? new ServletRequestAttributes(request) : null;
+        return () -> {
+            if (permits != null) {
+                permits.acquire();
+            }
+
+            boolean bound = attributes != null && RequestContextHolder.getRequestAttributes() == null;
+            if (bound) {
+                RequestContextHolder.setRequestAttributes(attributes);
+            }
+            worker.set(Boolean.TRUE);
+            try {
+                return task.call();
+            } finally {
+                worker.remove();
+                if (bound) {
+                    RequestContextHolder.resetRequestAttributes();
+                }
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        };
+    }
+
+    private static MethodHandle findVirtualExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+/**
+ * Count-min sketch of 4-bit counters, the popularity estimate behind TinyLFU admission. Counters are halved once
+ * {@code sampleSize} increments were recorded so old popularity fades away. Not thread safe, callers hold a lock.
+ */
+class McpToolFrequencySketch {
+
+    private static final long[] SEEDS      = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    private static final long   RESET_MASK = 0x7777777777777777L;
+
+    private final long[]        table;
+
+    private final int           tableMask;
+
+    private final int           sampleSize;
+
+    private int                 size;
+
+    /**
+     * @param expectedEntries rough number of entries the cache holds.
+     */
+    McpToolFrequencySketch(int expectedEntries){
+        int capacity = Integer.highestOneBit(Math.max(64, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+        this.table = new long[capacity];
+        this.tableMask = capacity - 1;
+        this.sampleSize = 10 * capacity;
+    }
+
+    int frequency(int hash) {
+        int freq = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int shift = counterShift(hash, i);
+            long word = table[indexOf(hash, i)];
+            freq = Math.min(freq, (int) ((word >>> shift) & 0xfL));
+        }
+        return freq;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int shift = counterShift(hash, i);
+            long word = table[index];
+            if (((word >>> shift) & 0xfL) != 0xfL) {
+                table[index] = word + (1L << shift);
+                added = true;
+            }
+        }
+
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Each long holds 16 counters, every row uses its own quarter of them.
+     */
+    private int counterShift(int hash, int row) {
+        int counter = (row << 2) + ((hash >>> (row << 3)) & 3);
+        return counter << 2;
+    }
+}
@@ -0,0 +1,17 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import jakarta.servlet.ServletRequest;
+
+/**
+ * Calls a tool method without reflection, implemented by the code generated at build time.
+ */
+@FunctionalInterface
+public interface McpToolInvoker {
+
+    /**
+     * @param bean the provider bean declaring the tool.
+     * @param body the already bound {@code @RequestBody} argument, may be null.
+     * @param request the current request, passed to {@link ServletRequest} parameters.
+     */
+    Object invoke(Object bean, Object body, ServletRequest request) throws Exception;
+}
@@ -0,0 +1,153 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ai.reakh.mcp.sdk.annotation.McpTool;
+
+/**
+ * Per-tool bulkhead. Permits are a CAS on the in-flight counter, no lock and no queue: over the limit the call is
+ * rejected. In adaptive mode the limit follows AIMD on latency: it grows by one while calls are as fast as the
+ * observed baseline and the limit is actually used, and shrinks by {@link #BACKOFF} when a call is slow or the upstream
+ * is overloaded, at most once per latency window so a burst of failures of calls sent together counts once. Failures
+ * the client caused say nothing about the upstream, they leave the limit alone.
+ */
+public class McpToolLimiter {
+
+    private static final int    ADAPTIVE_INITIAL_LIMIT = 20;
+
+    private static final int    ADAPTIVE_MAX_LIMIT     = 1000;
+
+    private static final double BACKOFF                = 0.9;
+
+    /**
+     * A call slower than this factor times the baseline latency counts as congestion.
+     */
+    private static final double TOLERANCE              = 2.0;
+
+    private final AtomicInteger inFlight               = new AtomicInteger();
+
+    private final AtomicInteger limit;
+
+    private final int           maxLimit;
+
+    private final boolean       adaptive;
+
+    /**
+     * Smoothed no-load latency in nanos, drifts up slowly so a permanently slower backend becomes the new normal.
+     */
+    private final AtomicLong    baselineNanos          = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong    lastDecreaseNanos      = new AtomicLong(System.nanoTime());
+
+    public McpToolLimiter(int maxConcurrency, boolean adaptive){
+        this.adaptive = adaptive;
+        if (adaptive) {
+            this.maxLimit = maxConcurrency > 0 ? maxConcurrency : ADAPTIVE_MAX_LIMIT;
+            this.limit = new AtomicInteger(Math.min(ADAPTIVE_INITIAL_LIMIT, maxLimit));
+        } else {
+            this.maxLimit = maxConcurrency;
+            this.limit = new AtomicInteger(maxConcurrency);
+        }
+    }
+
+    /**
+     * @return null if the tool is neither limited nor adaptive.
+     */
+    public static McpToolLimiter of(McpTool mcpTool) {
+        return of(mcpTool.maxConcurrency(), mcpTool.adaptiveConcurrency());
+    }
+
+    /**
+     * @return null if the tool is neither limited nor adaptive.
+     */
+    public static McpToolLimiter of(int maxConcurrency, boolean adaptive) {
+        if (maxConcurrency <= 0 && !adaptive) {
+            return null;
+        }
+        return new McpToolLimiter(maxConcurrency, adaptive);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos time the call held the permit.
+     * @param outcome how the call ended, as far as the upstream load is concerned.
+     */
+    public void release(long latencyNanos, Outcome outcome) {
+        int current = inFlight.getAndDecrement();
+        if (!adaptive || outcome == Outcome.IGNORED) {
+            return;
+        }
+
+        if (outcome == Outcome.OVERLOADED) {
+            // the latency of a timeout is the budget, not a sample of the upstream
+            decrease(baselineNanos.get(), latencyNanos);
+            return;
+        }
+
+        long baseline = updateBaseline(latencyNanos);
+        if (latencyNanos > baseline * TOLERANCE) {
+            decrease(baseline, latencyNanos);
+        } else if (current * 2 >= limit.get()) {
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Back off unless the limit was already lowered within the last latency window.
+     */
+    private void decrease(long baseline, long latencyNanos) {
+        long window = baseline == Long.MAX_VALUE ? latencyNanos : (long) (baseline * TOLERANCE);
+        long now = System.nanoTime();
+        long last = lastDecreaseNanos.get();
+        if (now - last >= window && lastDecreaseNanos.compareAndSet(last, now)) {
+            limit.updateAndGet(l -> Math.max(1, (int) (l * BACKOFF)));
+        }
+    }
+
+    private long updateBaseline(long sample) {
+        return baselineNanos.updateAndGet(b -> {
+            if (sample < b) {
+                return sample;
+            }
+            return b + (sample - b) / 256;
+        });
+    }
+
+    public enum Outcome {
+
+        /**
+         * The upstream answered, its latency is a sample.
+         */
+        SUCCEEDED,
+
+        /**
+         * The upstream answered 5xx or timed out within the tool budget.
+         */
+        OVERLOADED,
+
+        /**
+         * Failures of the client's making: bad arguments, 4xx, the client's cancel or its own shorter deadline.
+         */
+        IGNORED
+    }
+}
@@ -0,0 +1,259 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ai.reakh.mcp.sdk.mcp.model.response.ToolCallResult;
+import lombok.Getter;
+
+/**
+ * Results of read-only tools, bounded by an estimated byte size rather than an entry count. New entries land in a
+ * small LRU window; entries leaving the window only enter the main LRU if the frequency sketch rates them more popular
+ * than the main victims they would push out (W-TinyLFU), so a burst of one-off calls can not flush the hot entries.
+ */
+public class McpToolResultCache {
+
+    /**
+     * Rough per-entry overhead of the maps, nodes and result objects.
+     */
+    private static final int             ENTRY_OVERHEAD = 160;
+
+    private static final int             AVG_ENTRY_SIZE = 1024;
+
+    @Getter
+    private final long                   maxBytes;
+
+    private final long                   windowMaxBytes;
+
+    private final long                   mainMaxBytes;
+
+    private final Map<String, Entry>     window         = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<String, Entry>     main           = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final McpToolFrequencySketch sketch;
+
+    private final ReentrantLock          lock           = new ReentrantLock();
+
+    private long                         windowBytes;
+
+    private long                         mainBytes;
+
+    private final LongAdder              hits           = new LongAdder();
+
+    private final LongAdder              misses         = new LongAdder();
+
+    private final LongAdder              evictions      = new LongAdder();
+
+    public McpToolResultCache(long maxBytes){
+        this.maxBytes = maxBytes;
+        this.windowMaxBytes = Math.max(1, maxBytes / 100);
+        this.mainMaxBytes = maxBytes - windowMaxBytes;
+        this.sketch = new McpToolFrequencySketch((int) Math.min(Integer.MAX_VALUE, maxBytes / AVG_ENTRY_SIZE));
+    }
+
+    /**
+     * Key of a call: tool and its definition version, the caller's access key, its tenant attributes if any and a hash
+     * of the canonical arguments. The access key is always part of it, callers sharing attributes never share results.
+     */
+    public static String key(String toolName, long toolVersion, String accessKey, String tenant, String argumentsHash) {
+        return toolName + '\u0000' + toolVersion + '\u0000' + accessKey + '\u0000' + tenant + '\u0000' + argumentsHash;
+    }
+
+    /**
+     * @return the cached result, null on a miss or if the entry expired.
+     */
+    public ToolCallResult get(String key) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            sketch.increment(key.hashCode());
+            Entry entry = window.get(key);
+            if (entry == null) {
+                entry = main.get(key);
+            }
+
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+
+            if (entry.isExpired(now)) {
+                remove(key, entry);
+                misses.increment();
+                return null;
+            }
+
+            hits.increment();
+            return entry.result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String key, ToolCallResult result, long ttlMillis) {
+        long weight = weigh(key, result);
+        if (ttlMillis <= 0 || weight > mainMaxBytes) {
+            return;
+        }
+
+        Entry entry = new Entry(key, result, weight, System.nanoTime() + ttlMillis * 1_000_000L);
+        lock.lock();
+        try {
+            Entry old = window.remove(key);
+            if (old != null) {
+                windowBytes -= old.weight;
+            }
+            old = main.remove(key);
+            if (old != null) {
+                mainBytes -= old.weight;
+            }
+
+            window.put(key, entry);
+            windowBytes += entry.weight;
+            drainWindow();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            window.clear();
+            main.clear();
+            windowBytes = 0;
+            mainBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Entries dropped or refused for lack of space; expired entries are not counted.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getWeightedSize() {
+        lock.lock();
+        try {
+            return windowBytes + mainBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return window.size() + main.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainWindow() {
+        long now = System.nanoTime();
+        Iterator<Entry> it = window.values().iterator();
+        while (windowBytes > windowMaxBytes && it.hasNext()) {
+            Entry candidate = it.next();
+            it.remove();
+            windowBytes -= candidate.weight;
+            if (!candidate.isExpired(now)) {
+                admit(candidate, now);
+            }
+        }
+    }
+
+    /**
+     * Move a window victim into the main space if it beats the main victims in popularity.
+     */
+    private void admit(Entry candidate, long now) {
+        int candidateFreq = sketch.frequency(candidate.key.hashCode());
+        Iterator<Entry> it = main.values().iterator();
+        List<Entry> victims = null;
+        long freed = 0;
+        while (mainBytes - freed + candidate.weight > mainMaxBytes && it.hasNext()) {
+            Entry victim = it.next();
+            if (!victim.isExpired(now) && sketch.frequency(victim.key.hashCode()) >= candidateFreq) {
+                evictions.increment();
+                return;
+            }
+
+            if (victims == null) {
+                victims = new ArrayList<>();
+            }
+            victims.add(victim);
+            freed += victim.weight;
+        }
+
+        if (victims != null) {
+            for (Entry victim : victims) {
+                main.remove(victim.key);
+                mainBytes -= victim.weight;
+                if (!victim.isExpired(now)) {
+                    evictions.increment();
+                }
+            }
+        }
+
+        main.put(candidate.key, candidate);
+        mainBytes += candidate.weight;
+    }
+
+    private void remove(String key, Entry entry) {
+        if (window.remove(key) != null) {
+            windowBytes -= entry.weight;
+        } else if (main.remove(key) != null) {
+            mainBytes -= entry.weight;
+        }
+    }
+
+    private static long weigh(String key, ToolCallResult result) {
+        long size = ENTRY_OVERHEAD + 2L * key.length();
+        for (ToolCallResult.ContentBlock block : result.getContent()) {
+            size += 48 + (block.getText() == null ? 0 : 2L * block.getText().length());
+        }
+        if (result.getStructuredContent() != null && result.getStructuredContent().getJson() != null) {
+            size += 2L * result.getStructuredContent().getJson().length();
+        }
+        return size;
+    }
+
+    private static class Entry {
+
+        private final String         key;
+
+        private final ToolCallResult result;
+
+        private final long           weight;
+
+        private final long           expireAtNanos;
+
+        private Entry(String key, ToolCallResult result, long weight, long expireAtNanos){
+            this.key = key;
+            this.result = result;
+            this.weight = weight;
+            this.expireAtNanos = expireAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expireAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+import lombok.Getter;
+
+/**
+ * Field selection over a JSON tool result, e.g. {@code ["total", "items.id", "items.owner.name"]}. Each entry is a dot
+ * separated path, arrays are transparent so a path applies to each of their elements. The upstream body is filtered
+ * token by token while it is read: subtrees outside the selection are skipped, never materialized.
+ */
+public class McpToolResultProjection {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Leading whitespace looked at to tell JSON from plain text.
+     */
+    private static final int         PEEK_BYTES   = 64;
+
+    @Getter
+    private final List<String>       fields;
+
+    private final Node               root;
+
+    private McpToolResultProjection(List<String> fields, Node root){
+        this.fields = fields;
+        this.root = root;
+    }
+
+    /**
+     * @return null if there is nothing to select.
+     */
+    public static McpToolResultProjection of(Collection<String> fields) {
+        if (fields == null) {
+            return null;
+        }
+
+        Node root = new Node();
+        List<String> normalized = new ArrayList<>();
+        for (String field : fields) {
+            String path = field == null ? "" : field.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+
+            Node node = root;
+            for (String name : path.split("\\.")) {
+                node = node.children.computeIfAbsent(name.trim(), k -> new Node());
+            }
+            node.selected = true;
+            normalized.add(path);
+        }
+        return normalized.isEmpty() ? null : new McpToolResultProjection(Collections.unmodifiableList(normalized), root);
+    }
+
+    /**
+     * Filter {@code in}, which is consumed but not closed.
+     *
+     * @return null if the body is not a JSON object or array, it is left unread then.
+     */
+    public Projected apply(InputStream in) throws IOException {
+        BufferedInputStream buffered = in instanceof BufferedInputStream ? (BufferedInputStream) in : new BufferedInputStream(in);
+        int container = peekContainer(buffered);
+        if (container < 0) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long originalBytes;
+        try (JsonParser source = JSON_FACTORY.createParser(buffered);
+                JsonParser filtered = new FilteringParserDelegate(source, new PathFilter(root), TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true);
+                JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+            // keep the input open, the caller owns it
+            source.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            boolean empty = true;
+            while (filtered.nextToken() != null) {
+                gen.copyCurrentEvent(filtered);
+                empty = false;
+            }
+            if (empty) {
+                // nothing selected, still the same kind of value
+                if (container == '[') {
+                    gen.writeStartArray();
+                    gen.writeEndArray();
+                } else {
+                    gen.writeStartObject();
+                    gen.writeEndObject();
+                }
+            }
+            gen.flush();
+            originalBytes = source.currentLocation().getByteOffset();
+        }
+
+        return new Projected(out.toString(UTF_8), originalBytes, out.size());
+    }
+
+    public Projected apply(String json) throws IOException {
+        return apply(new ByteArrayInputStream(json.getBytes(UTF_8)));
+    }
+
+    /**
+     * @return the opening char of the JSON object or array the body starts with, -1 if it starts with none.
+     */
+    private static int peekContainer(BufferedInputStream in) throws IOException {
+        in.mark(PEEK_BYTES);
+        try {
+            int c;
+            for (int i = 0; i < PEEK_BYTES && (c = in.read()) >= 0; i++) {
+                if (!Character.isWhitespace(c)) {
+                    return c == '{' || c == '[' ? c : -1;
+                }
+            }
+            return -1;
+        } finally {
+            in.reset();
+        }
+    }
+
+    @Getter
+    public static class Projected {
+
+        private final String json;
+
+        private final long   originalBytes;
+
+        private final long   projectedBytes;
+
+        private Projected(String json, long originalBytes, long projectedBytes){
+            this.json = json;
+            this.originalBytes = originalBytes;
+            this.projectedBytes = projectedBytes;
+        }
+
+        public long getSavedBytes() {
+            return Math.max(0, originalBytes - projectedBytes);
+        }
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        /**
+         * The whole subtree is selected.
+         */
+        private boolean                 selected;
+    }
+
+    private static class PathFilter extends TokenFilter {
+
+        private final Node node;
+
+        private PathFilter(Node node){
+            this.node = node;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            Node child = node.children.get(name);
+            if (child == null) {
+                return null;
+            }
+            return child.selected ? TokenFilter.INCLUDE_ALL : new PathFilter(child);
+        }
+
+        @Override
+        public TokenFilter includeElement(int index) {
+            return this;
+        }
+
+        @Override
+        protected boolean _includeScalar() {
+            // a scalar where the path expects more levels
+            return false;
+        }
+    }
+}
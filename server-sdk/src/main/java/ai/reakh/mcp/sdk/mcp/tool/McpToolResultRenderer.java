@@ -0,0 +1,193 @@
+package ai.reakh.mcp.sdk.mcp.tool;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+import ai.reakh.mcp.sdk.constants.McpResultFormat;
+
+/**
+ * Renders a JSON array of flat objects as header plus rows, so keys are written once instead of once per row. The
+ * array is read token by token and rows are written as they come, no tree is built. Objects may omit keys of the
+ * header (empty cell) but not bring new ones, and values must be scalars; any other shape is left as JSON.
+ */
+public class McpToolResultRenderer {
+
+    /**
+     * Leaves the source open, a body which is no table is read again by the caller.
+     */
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder().disable(StreamReadFeature.AUTO_CLOSE_SOURCE).build();
+
+    private McpToolResultRenderer(){
+    }
+
+    /**
+     * @return the rendered text, null if {@code json} does not have a tabular shape.
+     */
+    public static String render(String json, McpResultFormat format) {
+        if (format == null || format == McpResultFormat.JSON || json == null) {
+            return null;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return render(parser, format, json.length() / 3);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Render straight from the upstream body, only the table is held. Reading stops at the first token which does not
+     * fit, the reader is not closed.
+     *
+     * @return the rendered text, null if the body does not have a tabular shape or is not valid JSON.
+     * @throws IOException if reading the body failed.
+     */
+    public static String render(Reader json, McpResultFormat format) throws IOException {
+        if (format == null || format == McpResultFormat.JSON) {
+            return null;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return render(parser, format, 8192);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String render(JsonParser parser, McpResultFormat format, int capacity) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            return null;
+        }
+
+        char separator = format == McpResultFormat.TSV ? '\t' : ',';
+        StringBuilder sb = new StringBuilder(capacity);
+        List<String> header = null;
+        Map<String, Integer> columns = null;
+        String[] row = null;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            if (header == null) {
+                // the first object defines the columns
+                header = new ArrayList<>();
+                List<String> values = new ArrayList<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    header.add(parser.currentName());
+                    if (!parser.nextToken().isScalarValue()) {
+                        return null;
+                    }
+                    values.add(parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getText());
+                }
+
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i), i);
+                }
+                if (header.isEmpty() || columns.size() != header.size()) {
+                    return null;
+                }
+
+                appendLine(sb, header.toArray(new String[0]), format, separator);
+                appendLine(sb, values.toArray(new String[0]), format, separator);
+                row = new String[header.size()];
+                continue;
+            }
+
+            Arrays.fill(row, null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Integer column = columns.get(parser.currentName());
+                if (column == null || !parser.nextToken().isScalarValue()) {
+                    return null;
+                }
+                row[column] = parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+            }
+            appendLine(sb, row, format, separator);
+        }
+
+        // trailing content after the array
+        if (header == null || parser.nextToken() != null) {
+            return null;
+        }
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, String[] values, McpResultFormat format, char separator) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+
+            if (format == McpResultFormat.TSV) {
+                appendTsv(sb, value);
+            } else {
+                appendCsv(sb, value);
+            }
+        }
+        sb.append('\n');
+    }
+
+    private static void appendTsv(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private static void appendCsv(StringBuilder sb, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            sb.append(value);
+            return;
+        }
+
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
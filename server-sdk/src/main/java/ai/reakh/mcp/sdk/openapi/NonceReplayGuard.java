@@ -0,0 +1,292 @@
+package ai.reakh.mcp.sdk.openapi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Remembers the {@code SignatureNonce} of verified requests so a signed request cannot be replayed. Memory is fixed:
+ * nonces go into a ring of sliced Bloom filters, one per time bucket, and a bucket is dropped as a whole once it left
+ * the window. All operations are lock-free, bits are set by CAS on an {@link AtomicLongArray}.
+ * <p>
+ * Nonces are expected to be time based uuids as {@link ai.reakh.mcp.sdk.utils.RequestIdGenerator} makes them: they are
+ * filed under their own timestamp and rejected once older than the window, so a replay is caught however late it
+ * comes. Other nonces are filed under their arrival time and only caught within the window, unless
+ * {@link #setRequireTimeBasedNonce(boolean)} rejects them.
+ * <p>
+ * A false positive rejects a legit request, its rate holds as long as a bucket gets no more than
+ * {@link #getCapacityPerBucket()} nonces, a warning is logged once it does. Two copies of a nonce arriving at the very
+ * same time may both pass.
+ *
+ * <pre>
+ * sessionManager.setNonceReplayGuard(new NonceReplayGuard(5 * 60 * 1000L, 60 * 1000L, 1e-6, 32L &lt;&lt; 20));
+ * </pre>
+ */
+@Slf4j
+public class NonceReplayGuard {
+
+    /**
+     * 100ns intervals between the uuid epoch (1582-10-15) and the unix one.
+     */
+    private static final long                  UUID_EPOCH_OFFSET     = 0x01B21DD213814000L;
+
+    private static final int                   BUCKETS_PER_SPAN      = 4;
+
+    @Getter
+    private final long                         windowMillis;
+
+    @Getter
+    private final long                         maxSkewMillis;
+
+    private final long                         bucketMillis;
+
+    private final int                          slices;
+
+    private final int                          sliceWords;
+
+    @Getter
+    private final long                         capacityPerBucket;
+
+    private final AtomicReferenceArray<Filter> ring;
+
+    private volatile boolean                   requireTimeBasedNonce;
+
+    private final LongAdder                    replayed              = new LongAdder();
+
+    private final LongAdder                    outOfWindow           = new LongAdder();
+
+    /**
+     * Five minutes back, one minute ahead, one false positive in a million, 32MB.
+     */
+    public NonceReplayGuard(){
+        this(5 * 60 * 1000L, 60 * 1000L, 1e-6, 32L << 20);
+    }
+
+    /**
+     * @param windowMillis how old a nonce may be.
+     * @param maxSkewMillis how far ahead of this host a client clock may be.
+     * @param fpp false positive rate of a single filter.
+     * @param maxBytes memory of all filters together.
+     */
+    public NonceReplayGuard(long windowMillis, long maxSkewMillis, double fpp, long maxBytes){
+        if (windowMillis <= 0 || maxSkewMillis < 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Invalid nonce replay guard settings.");
+        }
+
+        this.windowMillis = windowMillis;
+        this.maxSkewMillis = maxSkewMillis;
+        this.bucketMillis = Math.max(1000, (windowMillis + maxSkewMillis) / BUCKETS_PER_SPAN);
+        // every bucket a nonce in [now - window, now + skew] can fall in, plus the one being entered
+        int buckets = (int) ((windowMillis + maxSkewMillis + bucketMillis - 1) / bucketMillis) + 2;
+
+        this.slices = Math.max(1, (int) Math.ceil(-Math.log(fpp) / Math.log(2)));
+        long wordsPerBucket = maxBytes / 8 / buckets;
+        if (wordsPerBucket < slices) {
+            throw new IllegalArgumentException("Nonce replay guard needs more than " + maxBytes + " bytes.");
+        }
+
+        this.sliceWords = (int) Math.min(Integer.MAX_VALUE / slices, wordsPerBucket / slices);
+        long sliceBits = sliceWords * 64L;
+        // (1 - e^(-n / sliceBits))^slices = fpp
+        this.capacityPerBucket = (long) (-sliceBits * Math.log(1 - Math.pow(fpp, 1.0 / slices)));
+        this.ring = new AtomicReferenceArray<>(buckets);
+    }
+
+    public void setRequireTimeBasedNonce(boolean requireTimeBasedNonce) {
+        this.requireTimeBasedNonce = requireTimeBasedNonce;
+    }
+
+    /**
+     * Record the nonce of a request whose signature was verified; nonces of others must not get in, they would block
+     * the real ones.
+     *
+     * @return false if the nonce was seen before or its timestamp is out of the window.
+     */
+    public boolean accept(String accessKey, String nonce) {
+        long now = System.currentTimeMillis();
+        long seed = mix(accessKey == null ? 0 : accessKey.hashCode());
+
+        long timeLow = parseHex(nonce, 0, 8);
+        long timeMid = parseHex(nonce, 9, 4);
+        long timeHi = parseHex(nonce, 14, 4);
+        long clockSeq = parseHex(nonce, 19, 4);
+        long node = parseHex(nonce, 24, 12);
+        boolean timeBased = isCanonicalUuid(nonce) && (timeLow | timeMid | timeHi | clockSeq | node) >= 0 && (timeHi >>> 12) == 1;
+
+        if (timeBased) {
+            long msb = timeLow << 32 | timeMid << 16 | timeHi;
+            long lsb = clockSeq << 48 | node;
+            long timestamp = (msb & 0xFFF) << 48 | (msb >>> 16 & 0xFFFF) << 32 | msb >>> 32;
+            long millis = (timestamp - UUID_EPOCH_OFFSET) / 10000;
+            if (millis < now - windowMillis || millis > now + maxSkewMillis) {
+                outOfWindow.increment();
+                return false;
+            }
+
+            long h1 = mix(msb ^ mix(lsb ^ seed));
+            long h2 = mix(h1 ^ lsb) | 1;
+            return testAndSet(millis / bucketMillis, h1, h2);
+        }
+
+        if (requireTimeBasedNonce || nonce == null) {
+            outOfWindow.increment();
+            return false;
+        }
+
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < nonce.length(); i++) {
+            h = (h ^ nonce.charAt(i)) * 0x100000001b3L;
+        }
+        long h1 = mix(h);
+        long h2 = mix(h1 ^ h) | 1;
+
+        // its time is unknown, look through all buckets of the window
+        long current = now / bucketMillis;
+        for (long epoch = (now - windowMillis) / bucketMillis; epoch < current; epoch++) {
+            Filter filter = ring.get((int) (epoch % ring.length()));
+            if (filter != null && filter.epoch == epoch && filter.mightContain(h1, h2)) {
+                replayed.increment();
+                return false;
+            }
+        }
+        return testAndSet(current, h1, h2);
+    }
+
+    public long getReplayedCount() {
+        return replayed.sum();
+    }
+
+    public long getOutOfWindowCount() {
+        return outOfWindow.sum();
+    }
+
+    private boolean testAndSet(long epoch, long h1, long h2) {
+        Filter filter = filterOf(epoch);
+        if (filter == null || !filter.testAndSet(h1, h2)) {
+            // a null filter means the bucket was already recycled for a newer one
+            replayed.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private Filter filterOf(long epoch) {
+        int slot = (int) (epoch % ring.length());
+        while (true) {
+            Filter filter = ring.get(slot);
+            if (filter != null && filter.epoch >= epoch) {
+                return filter.epoch == epoch ? filter : null;
+            }
+
+            // the slot holds a bucket out of the window, recycle it
+            Filter fresh = new Filter(epoch);
+            if (ring.compareAndSet(slot, filter, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * 16 hex digits at most, -1 if any char is not one.
+     */
+    private static long parseHex(String s, int from, int len) {
+        if (s == null || s.length() < from + len) {
+            return -1;
+        }
+
+        long v = 0;
+        for (int i = from; i < from + len; i++) {
+            int d = Character.digit(s.charAt(i), 16);
+            if (d < 0) {
+                return -1;
+            }
+            v = v << 4 | d;
+        }
+        return v;
+    }
+
+    private static boolean isCanonicalUuid(String s) {
+        return s != null && s.length() == 36 && s.charAt(8) == '-' && s.charAt(13) == '-' && s.charAt(18) == '-' && s.charAt(23) == '-';
+    }
+
+    /**
+     * Finalizer of MurmurHash3.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private class Filter {
+
+        private final long            epoch;
+
+        /**
+         * {@link #slices} consecutive slices of {@link #sliceWords} words, one bit per slice is set for a nonce.
+         */
+        private final AtomicLongArray words;
+
+        private final LongAdder       count = new LongAdder();
+
+        private volatile boolean      warned;
+
+        private Filter(long epoch){
+            this.epoch = epoch;
+            this.words = new AtomicLongArray(slices * sliceWords);
+        }
+
+        private boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < slices; i++) {
+                long bit = bitOf(i, h1, h2);
+                if ((words.get(wordOf(i, bit)) & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return true if the nonce was new, i.e. this call set at least one of its bits.
+         */
+        private boolean testAndSet(long h1, long h2) {
+            boolean added = false;
+            for (int i = 0; i < slices; i++) {
+                long bit = bitOf(i, h1, h2);
+                int word = wordOf(i, bit);
+                long mask = 1L << bit;
+                long old;
+                while (((old = words.get(word)) & mask) == 0) {
+                    if (words.compareAndSet(word, old, old | mask)) {
+                        added = true;
+                        break;
+                    }
+                }
+            }
+
+            if (added) {
+                count.increment();
+                // summing is not free, look once in a while
+                if (!warned && (h1 & 0xFF) == 0 && count.sum() > capacityPerBucket) {
+                    warned = true;
+                    log.warn("[MCP] Nonce replay guard bucket over capacity ({}), false positives rise, give it more memory.", capacityPerBucket);
+                }
+            }
+            return added;
+        }
+
+        private long bitOf(int slice, long h1, long h2) {
+            return ((h1 + slice * h2) >>> 1) % (sliceWords * 64L);
+        }
+
+        private int wordOf(int slice, long bit) {
+            return slice * sliceWords + (int) (bit >>> 6);
+        }
+    }
+}
@@ -5,15 +5,17 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
-import com.fasterxml.uuid.Generators;
-
 import ai.reakh.mcp.sdk.mcp.exception.ClientException;
 import ai.reakh.mcp.sdk.mcp.exception.ServerException;
 import ai.reakh.mcp.sdk.openapi.model.JsonRequest;
+import ai.reakh.mcp.sdk.utils.RequestIdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 
@@ -23,19 +25,34 @@ import okhttp3.*;
 @Slf4j
 public class OpenApiHttpClient {
 
-    public static final MediaType JSON             = MediaType.get("application/json; charset=utf-8");
+    public static final MediaType                   JSON                 = MediaType.get("application/json; charset=utf-8");
+
+    public static final MediaType                   FILE                 = MediaType.get("application/x-www-form-urlencoded");
+
+    /**
+     * Absolute deadline of the call in epoch millis, propagated to the upstream api.
+     */
+    public static final String                      DEADLINE_HEADER      = "X-Mcp-Deadline";
+
+    private final String                            host;
+
+    private final Integer                           openApiTimeout;
 
-    public static final MediaType FILE             = MediaType.get("application/x-www-form-urlencoded");
+    private final String                            accessKey;
 
-    private final String          host;
+    private final String                            secretKey;
 
-    private final Integer         openApiTimeout;
+    private static final String                     SIGNATURE_METHOD     = "HmacSHA1";
 
-    private final String          accessKey;
+    private static final int                        DEFAULT_MAX_REQUESTS = 256;
 
-    private final String          secretKey;
+    /**
+     * One dispatcher and connection pool for every client. Building a new OkHttpClient per call opened fresh sockets
+     * each time; derived clients via {@link OkHttpClient#newBuilder()} keep sharing both.
+     */
+    private static final OkHttpClient               SHARED_CLIENT        = createSharedClient();
 
-    private static final String   SIGNATURE_METHOD = "HmacSHA1";
+    private static final Map<Integer, OkHttpClient> TIMEOUT_CLIENTS      = new ConcurrentHashMap<>();
 
     public OpenApiHttpClient(String host, Integer openApiTimeout, String accessKey, String secretKey){
         this.host = host;
@@ -45,23 +62,34 @@ public class OpenApiHttpClient {
     }
 
     public String doJsonPost(String uri, String content) throws Exception {
+        return doJsonPost(uri, content, 0, null);
+    }
+
+    /**
+     * @param deadlineMillis absolute deadline of the call in epoch millis, 0 for none. It is sent upstream in the
+     * {@link #DEADLINE_HEADER} header and enforced as OkHttp call timeout.
+     * @param callListener receives the OkHttp call before it is executed, e.g. to cancel it from another thread.
+     */
+    public String doJsonPost(String uri, String content, long deadlineMillis, Consumer<Call> callListener) throws Exception {
         Response response = null;
+        Call call = null;
         try {
-            Map<String, String> commonParams = genCommonParams();
-            String url = genFullUrl(uri, commonParams);
+            call = newJsonCall(uri, content, deadlineMillis);
+            if (callListener != null) {
+                callListener.accept(call);
+            }
 
-            OkHttpClient client = new OkHttpClient();
-            RequestBody body = RequestBody.create(JSON, content);
-            Request request = new Request.Builder().url(url).post(body).build();
-            response = client.newCall(request).execute();
+            response = call.execute();
             if (response.code() >= 200 && response.code() < 300) {
                 return Objects.requireNonNull(response.body()).string();
             } else {
                 throw new ServerException(String.valueOf(response.code()), Objects.requireNonNull(response.body()).string());
             }
         } catch (IOException e) {
-            String msg = "failed to request to open api endpoint(" + host + "),msg:" + ExceptionUtils.getRootCauseMessage(e);
-            log.error(msg, e);
+            if (call == null || !call.isCanceled()) {
+                String msg = "failed to request to open api endpoint(" + host + "),msg:" + ExceptionUtils.getRootCauseMessage(e);
+                log.error(msg, e);
+            }
             throw new ClientException(e);
         } finally {
             if (response != null) {
@@ -70,18 +98,135 @@ public class OpenApiHttpClient {
         }
     }
 
+    /**
+     * Same as {@link #doJsonPost(String, String, long, Consumer)} but a successful body is returned unread, so large
+     * results can be streamed instead of copied into one String. The caller must close it; the call timeout keeps
+     * bounding the body read.
+     */
+    public ResponseBody doJsonPostForBody(String uri, String content, long deadlineMillis, Consumer<Call> callListener) throws Exception {
+        Response response = null;
+        Call call = null;
+        try {
+            call = newJsonCall(uri, content, deadlineMillis);
+            if (callListener != null) {
+                callListener.accept(call);
+            }
+
+            response = call.execute();
+            if (response.code() >= 200 && response.code() < 300) {
+                ResponseBody body = Objects.requireNonNull(response.body());
+                response = null;
+                return body;
+            } else {
+                throw new ServerException(String.valueOf(response.code()), Objects.requireNonNull(response.body()).string());
+            }
+        } catch (IOException e) {
+            if (call == null || !call.isCanceled()) {
+                String msg = "failed to request to open api endpoint(" + host + "),msg:" + ExceptionUtils.getRootCauseMessage(e);
+                log.error(msg, e);
+            }
+            throw new ClientException(e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    public CompletableFuture<String> doJsonPostAsync(String uri, String content) {
+        return doJsonPostAsync(uri, content, 0);
+    }
+
+    /**
+     * Same as {@link #doJsonPost(String, String, long, Consumer)} but the call is enqueued on OkHttp's dispatcher and
+     * the caller thread is released right away. The call still blocks a dispatcher platform thread on the socket until
+     * the body is read, so at most {@link #setDispatcherLimits(int, int)} calls run at once, the others wait in the
+     * dispatcher queue while their deadline runs. Cancelling the returned future cancels the http call.
+     */
+    public CompletableFuture<String> doJsonPostAsync(String uri, String content, long deadlineMillis) {
+        return doJsonPostAsync(uri, content, deadlineMillis, null);
+    }
+
+    /**
+     * @param callListener receives the OkHttp call before it is enqueued. Cancelling that call, unlike the future, lets
+     * the future complete only once OkHttp is done with it.
+     */
+    public CompletableFuture<String> doJsonPostAsync(String uri, String content, long deadlineMillis, Consumer<Call> callListener) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+
+        Call call;
+        try {
+            call = newJsonCall(uri, content, deadlineMillis);
+        } catch (ClientException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (callListener != null) {
+            callListener.accept(call);
+        }
+
+        call.enqueue(new Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (!call.isCanceled()) {
+                    String msg = "failed to request to open api endpoint(" + host + "),msg:" + ExceptionUtils.getRootCauseMessage(e);
+                    log.error(msg, e);
+                }
+                future.completeExceptionally(new ClientException(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    if (r.code() >= 200 && r.code() < 300) {
+                        future.complete(Objects.requireNonNull(r.body()).string());
+                    } else {
+                        future.completeExceptionally(new ServerException(String.valueOf(r.code()), Objects.requireNonNull(r.body()).string()));
+                    }
+                } catch (IOException e) {
+                    future.completeExceptionally(new ClientException(e));
+                }
+            }
+        });
+
+        future.whenComplete((r, t) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private Call newJsonCall(String uri, String content, long deadlineMillis) throws ClientException {
+        Map<String, String> commonParams = genCommonParams();
+        String url = genFullUrl(uri, commonParams);
+
+        RequestBody body = RequestBody.create(JSON, content);
+        Request.Builder builder = new Request.Builder().url(url).post(body);
+        if (deadlineMillis > 0) {
+            builder.header(DEADLINE_HEADER, String.valueOf(deadlineMillis));
+        }
+
+        Call call = clientFor(openApiTimeout).newCall(builder.build());
+        if (deadlineMillis > 0) {
+            long remaining = deadlineMillis - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new ClientException("DeadlineExceeded", "Deadline exceeded before calling open api endpoint(" + host + ")");
+            }
+            call.timeout().timeout(remaining, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
     public String doFormPost(String uri, Map<String, Object> formObjs) throws ClientException, ServerException {
         Response response = null;
         try {
             Map<String, String> commonParams = genCommonParams();
             String url = genFullUrl(uri, commonParams);
 
-            OkHttpClient client = new OkHttpClient.Builder() //
-                .connectTimeout(openApiTimeout, TimeUnit.SECONDS)
-                .writeTimeout(openApiTimeout, TimeUnit.SECONDS)
-                .readTimeout(openApiTimeout, TimeUnit.SECONDS)
-                .pingInterval(openApiTimeout, TimeUnit.SECONDS)
-                .build();
+            OkHttpClient client = clientFor(openApiTimeout);
 
             MultipartBody.Builder builder = new MultipartBody.Builder();
             builder.setType(MultipartBody.FORM);
@@ -119,20 +264,60 @@ public class OpenApiHttpClient {
         }
     }
 
+    /**
+     * Client applying the given timeout, derived from the shared one and cached, building an OkHttpClient is not cheap.
+     */
+    private static OkHttpClient clientFor(Integer timeoutSeconds) {
+        if (timeoutSeconds == null || timeoutSeconds <= 0) {
+            return SHARED_CLIENT;
+        }
+
+        return TIMEOUT_CLIENTS.computeIfAbsent(timeoutSeconds, t -> SHARED_CLIENT.newBuilder() //
+            .connectTimeout(t, TimeUnit.SECONDS)
+            .writeTimeout(t, TimeUnit.SECONDS)
+            .readTimeout(t, TimeUnit.SECONDS)
+            .pingInterval(t, TimeUnit.SECONDS)
+            .build());
+    }
+
+    /**
+     * Limits of the dispatcher shared by all clients, i.e. of the enqueued calls running at once, each holding a
+     * platform thread. 256 for both by default: OkHttp's own (64 total, 5 per host) would serialize loopback tool calls
+     * to a handful. Takes effect right away.
+     */
+    public static void setDispatcherLimits(int maxRequests, int maxRequestsPerHost) {
+        Dispatcher dispatcher = SHARED_CLIENT.dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+    }
+
+    /**
+     * The dispatcher shared by all clients, e.g. to watch its running and queued calls.
+     */
+    public static Dispatcher getDispatcher() {
+        return SHARED_CLIENT.dispatcher();
+    }
+
+    private static OkHttpClient createSharedClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(DEFAULT_MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_REQUESTS);
+        return new OkHttpClient.Builder().dispatcher(dispatcher).build();
+    }
+
     protected String genFullUrl(String uri, Map<String, String> commonParams) {
         String paramStr = OpenApiSigner.genSortedParamsStr(commonParams);
         return "http://" + host + uri + "?" + paramStr;
     }
 
     protected Map<String, String> genCommonParams() {
-        String nonce = Generators.timeBasedGenerator().generate().toString();
+        String nonce = RequestIdGenerator.next();
         Map<String, String> commonParams = new HashMap<>();
         commonParams.put("SignatureMethod", SIGNATURE_METHOD);
         commonParams.put("SignatureNonce", nonce);
         commonParams.put("AccessKeyId", accessKey);
 
-        String paramStr = OpenApiSigner.composeStringToSign(commonParams);
-        String signature = OpenApiSigner.signString(paramStr, secretKey);
+        String signature = OpenApiSigner.signCommonParams(accessKey, SIGNATURE_METHOD, nonce, secretKey);
 
         commonParams.put("Signature", signature);
 
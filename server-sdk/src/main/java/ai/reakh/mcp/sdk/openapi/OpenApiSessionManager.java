@@ -1,35 +1,48 @@
 package ai.reakh.mcp.sdk.openapi;
 
 import java.io.PrintWriter;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import com.fasterxml.uuid.Generators;
-
 import ai.reakh.mcp.sdk.UserInfo;
 import ai.reakh.mcp.sdk.UserMcpSdk;
+import ai.reakh.mcp.sdk.utils.RequestIdGenerator;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.Setter;
 
 /**
  * @author bucketli 2021/10/11 19:29
  */
 public class OpenApiSessionManager implements HandlerInterceptor {
 
-    public static final String OPEN_API_REQUEST_ID     = "OPEN_API_REQUEST_ID";
+    public static final String OPEN_API_REQUEST_ID       = "OPEN_API_REQUEST_ID";
+
+    /**
+     * Absolute deadline (epoch millis, {@link Long}) the caller gave this request, absent if none.
+     */
+    public static final String OPEN_API_REQUEST_DEADLINE = "OPEN_API_REQUEST_DEADLINE";
+
+    private static final int   COMMON_PARAMS_HAS_EMTPY   = 499;
 
-    private static final int   COMMON_PARAMS_HAS_EMTPY = 499;
+    private static final int   USER_NOT_EXIST            = 498;
 
-    private static final int   USER_NOT_EXIST          = 498;
+    private static final int   SIGNATURE_ERROR           = 497;
 
-    private static final int   SIGNATURE_ERROR         = 497;
+    private static final int   NONCE_REPLAYED            = 496;
 
     private final String       OPEN_API_URI_PREFIX;
 
+    /**
+     * Rejects signed requests whose nonce was already used, off when null.
+     */
+    @Setter
+    private NonceReplayGuard   nonceReplayGuard;
+
     @Resource
     private UserMcpSdk         userMcpSdk;
 
@@ -68,19 +81,16 @@ public class OpenApiSessionManager implements HandlerInterceptor {
             return false;
         }
 
-        Map<String, String> paramToSign = new HashMap<>();
-        paramToSign.put("SignatureMethod", signatureMethod);
-        paramToSign.put("SignatureNonce", signatureNonce);
-        paramToSign.put("AccessKeyId", ak);
-
-        String paramStr = OpenApiSigner.composeStringToSign(paramToSign);
-        String regenSignature = OpenApiSigner.signString(paramStr, userInfo.getSecretKey());
-
-        if (!signature.equals(regenSignature)) {
+        if (!OpenApiSigner.verifyCommonParams(ak, signatureMethod, signatureNonce, signature, userInfo.getSecretKey())) {
             responseSystemError(response, SIGNATURE_ERROR);
             return false;
         }
 
+        if (nonceReplayGuard != null && !nonceReplayGuard.accept(ak, signatureNonce)) {
+            responseSystemError(response, NONCE_REPLAYED);
+            return false;
+        }
+
         if (userInfo.getAttrsFillToReq() != null) {
             for (Map.Entry<String, String> attr : userInfo.getAttrsFillToReq().entrySet()) {
                 request.setAttribute(attr.getKey(), attr.getValue());
@@ -88,6 +98,12 @@ public class OpenApiSessionManager implements HandlerInterceptor {
         }
 
         request.setAttribute(OPEN_API_REQUEST_ID, generateRequestId());
+
+        // a malformed or overflowing header is no deadline, not a failed request
+        long deadline = NumberUtils.toLong(request.getHeader(OpenApiHttpClient.DEADLINE_HEADER), 0);
+        if (deadline > 0) {
+            request.setAttribute(OPEN_API_REQUEST_DEADLINE, deadline);
+        }
         return true;
     }
 
@@ -100,6 +116,6 @@ public class OpenApiSessionManager implements HandlerInterceptor {
     }
 
     protected String generateRequestId() {
-        return Generators.timeBasedGenerator().generate().toString();
+        return RequestIdGenerator.next();
     }
 }
@@ -1,11 +1,18 @@
 package ai.reakh.mcp.sdk.openapi;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -17,21 +24,190 @@ import jakarta.xml.bind.DatatypeConverter;
  */
 public class OpenApiSigner {
 
-    public static final String  ENCODING       = "UTF-8";
+    public static final String                ENCODING        = "UTF-8";
+
+    private static final String               ALGORITHM_NAME  = "HmacSHA1";
+
+    /**
+     * Secrets whose initialized {@link Mac} is kept, beyond that arbitrary ones are dropped.
+     */
+    private static final int                  MAX_CACHED_KEYS = 4096;
+
+    /**
+     * Mac initialized with the secret, never used itself: signing works on a clone, which skips the provider lookup
+     * and the key schedule. Read concurrently, which is safe as long as nobody updates it.
+     */
+    private static final Map<String, Mac>     PROTOTYPES      = new ConcurrentHashMap<>();
+
+    private static volatile boolean           cloneable       = true;
 
-    private static final String ALGORITHM_NAME = "HmacSHA1";
+    /**
+     * Buffers kept per thread by the fixed parameter paths, larger ones are dropped after use.
+     */
+    private static final int                  MAX_KEPT_BYTES  = 4096;
+
+    private static final ThreadLocal<Scratch> SCRATCH         = ThreadLocal.withInitial(Scratch::new);
+
+    private static final byte[]               HEX             = "0123456789ABCDEF".getBytes(UTF_8);
+
+    private static final int[]                BASE64          = new int[128];
+
+    static {
+        Arrays.fill(BASE64, -1);
+        byte[] alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(UTF_8);
+        for (int i = 0; i < alphabet.length; i++) {
+            BASE64[alphabet[i]] = i;
+        }
+    }
 
     public static String signString(String stringToSign, String accessKeySecret) {
         try {
-            Mac mac = Mac.getInstance(ALGORITHM_NAME);
-            mac.init(new SecretKeySpec(accessKeySecret.getBytes(ENCODING), ALGORITHM_NAME));
-            byte[] signData = mac.doFinal(stringToSign.getBytes(ENCODING));
+            Mac mac = macFor(accessKeySecret);
+            byte[] signData = mac.doFinal(stringToSign.getBytes(UTF_8));
             return DatatypeConverter.printBase64Binary(signData);
-        } catch (NoSuchAlgorithmException | UnsupportedEncodingException | InvalidKeyException e) {
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalArgumentException(e.toString());
+        }
+    }
+
+    /**
+     * Same as signing {@link #composeStringToSign(Map)} of the three common parameters, without building the map nor
+     * the intermediate strings.
+     */
+    public static String signCommonParams(String accessKeyId, String signatureMethod, String signatureNonce, String accessKeySecret) {
+        Scratch scratch = SCRATCH.get();
+        try {
+            macCommonParams(scratch, accessKeyId, signatureMethod, signatureNonce, accessKeySecret);
+            return Base64.getEncoder().encodeToString(scratch.expected);
+        } finally {
+            scratch.release();
+        }
+    }
+
+    /**
+     * Check {@code signature} against the three common parameters. It is decoded once and the raw MAC bytes are
+     * compared in constant time; only the canonical encoding, the one {@link #signString(String, String)} produces, is
+     * accepted.
+     */
+    public static boolean verifyCommonParams(String accessKeyId, String signatureMethod, String signatureNonce, String signature, String accessKeySecret) {
+        Scratch scratch = SCRATCH.get();
+        try {
+            if (!decodeBase64(signature, scratch.presented)) {
+                return false;
+            }
+
+            macCommonParams(scratch, accessKeyId, signatureMethod, signatureNonce, accessKeySecret);
+            return MessageDigest.isEqual(scratch.expected, scratch.presented);
+        } finally {
+            scratch.release();
+        }
+    }
+
+    /**
+     * Forget the cached key state of a secret, e.g. once it was rotated.
+     */
+    public static void evict(String accessKeySecret) {
+        if (accessKeySecret != null) {
+            PROTOTYPES.remove(accessKeySecret);
+        }
+    }
+
+    private static Mac macFor(String accessKeySecret) throws NoSuchAlgorithmException, InvalidKeyException {
+        if (!cloneable) {
+            return newMac(accessKeySecret);
+        }
+
+        Mac prototype = PROTOTYPES.get(accessKeySecret);
+        if (prototype == null) {
+            prototype = newMac(accessKeySecret);
+            if (PROTOTYPES.size() >= MAX_CACHED_KEYS) {
+                Iterator<String> it = PROTOTYPES.keySet().iterator();
+                if (it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+            PROTOTYPES.put(accessKeySecret, prototype);
+        }
+
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            // provider without cloneable macs, fall back to a fresh instance per call
+            cloneable = false;
+            PROTOTYPES.clear();
+            return newMac(accessKeySecret);
+        }
+    }
+
+    private static Mac newMac(String accessKeySecret) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance(ALGORITHM_NAME);
+        mac.init(new SecretKeySpec(accessKeySecret.getBytes(UTF_8), ALGORITHM_NAME));
+        return mac;
+    }
+
+    /**
+     * MAC of the string to sign into {@link Scratch#expected}. Keys are written in their sorted order and values are
+     * percent encoded twice in one go: once as in {@link #genSortedParamsStr(Map)}, once more for the whole string,
+     * which turns '=', '&amp;' and the '%' of escapes into %3D, %26 and %25.
+     */
+    private static void macCommonParams(Scratch scratch, String accessKeyId, String signatureMethod, String signatureNonce, String accessKeySecret) {
+        scratch.length = 0;
+        scratch.appendAscii("AccessKeyId%3D");
+        scratch.appendTwiceEncoded(String.valueOf(accessKeyId));
+        scratch.appendAscii("%26SignatureMethod%3D");
+        scratch.appendTwiceEncoded(String.valueOf(signatureMethod));
+        scratch.appendAscii("%26SignatureNonce%3D");
+        scratch.appendTwiceEncoded(String.valueOf(signatureNonce));
+
+        try {
+            Mac mac = macFor(accessKeySecret);
+            mac.update(scratch.buf, 0, scratch.length);
+            mac.doFinal(scratch.expected, 0);
+        } catch (GeneralSecurityException e) {
             throw new IllegalArgumentException(e.toString());
         }
     }
 
+    /**
+     * Strict decoding into {@code out}, false unless {@code value} is exactly the padded encoding of that many bytes.
+     */
+    private static boolean decodeBase64(String value, byte[] out) {
+        int chars = (out.length + 2) / 3 * 4;
+        int pad = (3 - out.length % 3) % 3;
+        if (value == null || value.length() != chars) {
+            return false;
+        }
+
+        int o = 0;
+        for (int i = 0; i < chars; i += 4) {
+            int bits = 0;
+            int last = i + 4 == chars ? 4 - pad : 4;
+            for (int j = 0; j < 4; j++) {
+                char c = value.charAt(i + j);
+                int v;
+                if (j >= last) {
+                    if (c != '=') {
+                        return false;
+                    }
+                    v = 0;
+                } else if (c >= 128 || (v = BASE64[c]) < 0) {
+                    return false;
+                }
+                bits = bits << 6 | v;
+            }
+
+            for (int shift = 16; shift >= 0 && o < out.length; shift -= 8) {
+                out[o++] = (byte) (bits >> shift);
+            }
+            // bits below the last byte must be zero, as an encoder writes them
+            if (i + 4 == chars && pad > 0 && (bits & ((1 << 8 * pad) - 1)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static String composeStringToSign(Map<String, String> queries) {
         try {
             String paramsStr = genSortedParamsStr(queries);
@@ -66,4 +242,81 @@ public class OpenApiSigner {
     private static String percentEncode(String value) throws UnsupportedEncodingException {
         return value != null ? URLEncoder.encode(value, ENCODING).replace("+", "%20").replace("*", "%2A").replace("%7E", "~") : null;
     }
+
+    /**
+     * Per thread buffers of the fixed parameter paths. No key state is kept here, only in {@link #PROTOTYPES}, so
+     * {@link #evict(String)} leaves no copy of a rotated secret reachable from any thread.
+     */
+    private static class Scratch {
+
+        private final byte[] expected  = new byte[20];
+
+        private final byte[] presented = new byte[20];
+
+        private byte[]       buf       = new byte[256];
+
+        private int          length;
+
+        private void appendAscii(String value) {
+            ensure(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                buf[length++] = (byte) value.charAt(i);
+            }
+        }
+
+        /**
+         * UTF-8 bytes of {@code value}, unreserved ones as is and the others as %25XX. Unpaired surrogates become '?',
+         * as in {@link URLEncoder}.
+         */
+        private void appendTwiceEncoded(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                // 4 bytes of 5 chars at most
+                ensure(20);
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    appendByte(c);
+                } else if (c < 0x800) {
+                    appendByte(0xC0 | c >> 6);
+                    appendByte(0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+                    appendByte(0xF0 | cp >> 18);
+                    appendByte(0x80 | cp >> 12 & 0x3F);
+                    appendByte(0x80 | cp >> 6 & 0x3F);
+                    appendByte(0x80 | cp & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    appendByte('?');
+                } else {
+                    appendByte(0xE0 | c >> 12);
+                    appendByte(0x80 | c >> 6 & 0x3F);
+                    appendByte(0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        private void appendByte(int b) {
+            if (b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '-' || b == '.' || b == '_' || b == '~') {
+                buf[length++] = (byte) b;
+                return;
+            }
+
+            buf[length++] = '%';
+            buf[length++] = '2';
+            buf[length++] = '5';
+            buf[length++] = HEX[b >> 4 & 0xF];
+            buf[length++] = HEX[b & 0xF];
+        }
+
+        private void ensure(int more) {
+            if (length + more > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, length + more));
+            }
+        }
+
+        private void release() {
+            if (buf.length > MAX_KEPT_BYTES) {
+                buf = new byte[256];
+            }
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package ai.reakh.mcp.sdk.utils;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.uuid.Generators;
+import com.fasterxml.uuid.impl.TimeBasedGenerator;
+
+/**
+ * Shared time based uuid source for request ids and signature nonces.
+ * <p>
+ * {@code UUIDTimer.getTimestamp()} is synchronized and may sleep while holding the monitor when the clock is
+ * exhausted, which pins a virtual thread to its carrier. Callers queue on a {@link ReentrantLock} first so at most one
+ * thread is ever inside that monitor and waiting virtual threads can unmount.
+ */
+public class RequestIdGenerator {
+
+    private static final TimeBasedGenerator GENERATOR = Generators.timeBasedGenerator();
+
+    private static final ReentrantLock      LOCK      = new ReentrantLock();
+
+    private RequestIdGenerator(){
+    }
+
+    public static String next() {
+        LOCK.lock();
+        try {
+            return GENERATOR.generate().toString();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_AK;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_SK;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_TENANT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import ai.reakh.mcp.sdk.UserInfo;
+import ai.reakh.mcp.sdk.UserMcpSdk;
+import ai.reakh.mcp.sdk.annotation.McpApiProvider;
+import ai.reakh.mcp.sdk.annotation.McpTool;
+import ai.reakh.mcp.sdk.mcp.model.request.McpRequest;
+import ai.reakh.mcp.sdk.utils.JacksonHelper;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Cached results are keyed by the caller's access key whatever its tenant attributes: callers without attributes, or
+ * sharing the same ones, must never read each other's results.
+ */
+class McpControllerHelperCacheTest {
+
+    private GenericApplicationContext context;
+
+    private McpControllerHelper       helper;
+
+    @BeforeEach
+    void setUp() {
+        TestProvider.CALLS.set(0);
+        context = new GenericApplicationContext();
+        context.registerBean(TestProvider.class);
+        context.refresh();
+
+        helper = new McpControllerHelper();
+        ReflectionTestUtils.setField(helper, "context", context);
+        ReflectionTestUtils.setField(helper, "userMcpSdk", new TestSdk());
+        helper.setDirectInvoke(true);
+        helper.initTools();
+    }
+
+    @AfterEach
+    void tearDown() {
+        helper.destroy();
+        context.close();
+    }
+
+    @Test
+    void accessKeysWithoutAttributesDoNotShareResults() throws Exception {
+        assertTrue(call(1, newRequest("ak-a", null)).contains("owner ak-a"));
+        assertTrue(call(2, newRequest("ak-b", null)).contains("owner ak-b"));
+        assertEquals(2, TestProvider.CALLS.get());
+
+        // a hit for the same caller
+        assertTrue(call(3, newRequest("ak-a", null)).contains("owner ak-a"));
+        assertEquals(2, TestProvider.CALLS.get());
+    }
+
+    @Test
+    void accessKeysWithSameAttributesDoNotShareResults() throws Exception {
+        assertTrue(call(1, newRequest("ak-a", "{}")).contains("owner ak-a"));
+        assertTrue(call(2, newRequest("ak-b", "{}")).contains("owner ak-b"));
+        assertTrue(call(3, newRequest("ak-c", "{region=eu}")).contains("owner ak-c"));
+        assertTrue(call(4, newRequest("ak-d", "{region=eu}")).contains("owner ak-d"));
+        assertEquals(4, TestProvider.CALLS.get());
+    }
+
+    private String call(int id, MockHttpServletRequest request) throws IOException {
+        McpRequest req = message("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\",\"params\":{\"name\":\"owner\",\"arguments\":{\"q\":\"x\"}}}");
+        return helper.getResponseWriter().writeValueAsString(helper.handleRequest(req, request));
+    }
+
+    private MockHttpServletRequest newRequest(String ak, String tenant) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/mcp");
+        request.setAttribute(MCP_API_REQUEST_AK, ak);
+        request.setAttribute(MCP_API_REQUEST_SK, "sk-" + ak);
+        if (tenant != null) {
+            request.setAttribute(MCP_API_REQUEST_TENANT, tenant);
+        }
+        return request;
+    }
+
+    private McpRequest message(String json) {
+        try {
+            return JacksonHelper.OBJECT_MAPPER.readValue(json, McpRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @McpApiProvider
+    @RequestMapping("/test")
+    public static class TestProvider {
+
+        static final AtomicInteger CALLS = new AtomicInteger();
+
+        @McpTool(value = "owner", cacheTtlMillis = 60_000)
+        @PostMapping("/owner")
+        public String owner(@RequestBody Args args, HttpServletRequest request) {
+            CALLS.incrementAndGet();
+            return "owner " + request.getAttribute(MCP_API_REQUEST_AK);
+        }
+    }
+
+    public static class Args {
+
+        public String q;
+    }
+
+    private static class TestSdk implements UserMcpSdk {
+
+        @Override
+        public UserInfo fetchByAccessKey(String accessKey) {
+            return null;
+        }
+
+        @Override
+        public McpI18nProxy getI18nProxy() {
+            return key -> key;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_AK;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_API_HOST;
+import static ai.reakh.mcp.sdk.constants.McpConstants.MCP_API_REQUEST_SK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import ai.reakh.mcp.sdk.UserInfo;
+import ai.reakh.mcp.sdk.UserMcpSdk;
+import ai.reakh.mcp.sdk.annotation.McpApiProvider;
+import ai.reakh.mcp.sdk.annotation.McpTool;
+import ai.reakh.mcp.sdk.mcp.exception.McpRpcException;
+import ai.reakh.mcp.sdk.mcp.model.McpProtocolBase;
+import ai.reakh.mcp.sdk.mcp.model.request.McpRequest;
+import ai.reakh.mcp.sdk.mcp.model.response.McpError;
+import ai.reakh.mcp.sdk.mcp.model.response.McpErrorResponse;
+import ai.reakh.mcp.sdk.mcp.tool.McpToolLimiter;
+import ai.reakh.mcp.sdk.openapi.OpenApiHttpClient;
+import ai.reakh.mcp.sdk.utils.JacksonHelper;
+import okhttp3.Call;
+
+/**
+ * Cancel and deadline of async tool calls must reach the upstream OkHttp call, and the tool permit must be held until
+ * the upstream call is really finished, for a streamed result until its body is written; a coalesced caller's cancel
+ * or deadline must not abort the call shared with the others, which is aborted once its last caller left. The upstream accepts connections and answers only when told to.
+ */
+class McpControllerHelperCancelTest {
+
+    private static final CountDownLatch STUCK_RELEASE = new CountDownLatch(1);
+
+    private final List<Socket>          accepted      = new CopyOnWriteArrayList<>();
+
+    private ServerSocket                upstream;
+
+    private GenericApplicationContext   context;
+
+    private McpControllerHelper         helper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            while (!upstream.isClosed()) {
+                try {
+                    accepted.add(upstream.accept());
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "test-upstream");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        context = new GenericApplicationContext();
+        context.registerBean(TestProvider.class);
+        context.refresh();
+
+        helper = new McpControllerHelper();
+        ReflectionTestUtils.setField(helper, "context", context);
+        ReflectionTestUtils.setField(helper, "userMcpSdk", new TestSdk());
+        helper.initTools();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        helper.destroy();
+        context.close();
+        upstream.close();
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    @Test
+    void cancelNotificationCancelsUpstreamCall() throws Exception {
+        MockHttpServletRequest request = newRequest();
+        CompletableFuture<McpProtocolBase> future = helper.handleRequestAsync(toolCall(1, "slow", null), request);
+        Call call = awaitUpstreamCall();
+        assertEquals(1, limiter("slow").getInFlight());
+
+        helper.handleRequest(message("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/cancelled\",\"params\":{\"requestId\":1}}"), request);
+
+        assertErrorCode(McpError.REQUEST_CANCELLED, future.get(5, TimeUnit.SECONDS));
+        assertTrue(call.isCanceled());
+        assertEquals(0, limiter("slow").getInFlight());
+        assertEquals(0, helper.getInFlightCalls().size());
+    }
+
+    @Test
+    void deadlineCancelsUpstreamCall() throws Exception {
+        CompletableFuture<McpProtocolBase> future = helper.handleRequestAsync(toolCall(2, "slow", "{\"timeoutMs\":300}"), newRequest());
+        Call call = awaitUpstreamCall();
+
+        assertErrorCode(McpRpcException.DEADLINE_EXCEEDED, future.get(5, TimeUnit.SECONDS));
+        assertTrue(call.isCanceled());
+        assertEquals(0, limiter("slow").getInFlight());
+    }
+
+    @Test
+    void cancellingResultFutureCancelsUpstreamCall() throws Exception {
+        CompletableFuture<McpProtocolBase> future = helper.handleRequestAsync(toolCall(4, "slow", null), newRequest());
+        Call call = awaitUpstreamCall();
+
+        // e.g. the SSE client went away
+        future.cancel(true);
+
+        assertTrue(call.isCanceled());
+        awaitIdle("slow");
+    }
+
+    @Test
+    void cancelOfCoalescedFollowerLeavesSharedCall() throws Exception {
+        MockHttpServletRequest request = newRequest();
+        CompletableFuture<McpProtocolBase> first = helper.handleRequestAsync(toolCall(5, "shared", null), request);
+        Call call = awaitUpstreamCall();
+        CompletableFuture<McpProtocolBase> second = helper.handleRequestAsync(toolCall(6, "shared", null), request);
+
+        helper.handleRequest(message("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/cancelled\",\"params\":{\"requestId\":6}}"), request);
+
+        assertErrorCode(McpError.REQUEST_CANCELLED, second.get(5, TimeUnit.SECONDS));
+        assertFalse(call.isCanceled());
+        assertFalse(first.isDone());
+        assertEquals(1, upstreamCalls().size());
+    }
+
+    @Test
+    void leaderDeadlineLeavesSharedCall() throws Exception {
+        MockHttpServletRequest request = newRequest();
+        CompletableFuture<McpProtocolBase> leader = helper.handleRequestAsync(toolCall(8, "shared", "{\"timeoutMs\":300}"), request);
+        Call call = awaitUpstreamCall();
+        CompletableFuture<McpProtocolBase> follower = helper.handleRequestAsync(toolCall(9, "shared", null), request);
+
+        assertErrorCode(McpRpcException.DEADLINE_EXCEEDED, leader.get(5, TimeUnit.SECONDS));
+        // the shared call runs on the tool budget, not on the leader's deadline
+        Thread.sleep(200);
+        assertFalse(call.isCanceled());
+        assertFalse(follower.isDone());
+    }
+
+    @Test
+    void sharedCallIsCancelledWhenLastCallerLeaves() throws Exception {
+        MockHttpServletRequest request = newRequest();
+        CompletableFuture<McpProtocolBase> first = helper.handleRequestAsync(toolCall(10, "shared", null), request);
+        Call call = awaitUpstreamCall();
+        CompletableFuture<McpProtocolBase> second = helper.handleRequestAsync(toolCall(11, "shared", null), request);
+
+        helper.handleRequest(message("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/cancelled\",\"params\":{\"requestId\":10}}"), request);
+        assertErrorCode(McpError.REQUEST_CANCELLED, first.get(5, TimeUnit.SECONDS));
+        assertFalse(call.isCanceled());
+
+        helper.handleRequest(message("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/cancelled\",\"params\":{\"requestId\":11}}"), request);
+        assertErrorCode(McpError.REQUEST_CANCELLED, second.get(5, TimeUnit.SECONDS));
+        assertTrue(call.isCanceled());
+        assertEquals(1, helper.getCoalescer().getAbandonedCount());
+        assertEquals(0, helper.getCoalescer().size());
+    }
+
+    @Test
+    void permitIsHeldUntilDirectCallReturns() throws Exception {
+        helper.setDirectInvoke(true);
+        MockHttpServletRequest request = newRequest();
+        CompletableFuture<McpProtocolBase> future = helper.handleRequestAsync(toolCall(3, "stuck", null), request);
+        TestProvider.STUCK_ENTERED.await(5, TimeUnit.SECONDS);
+
+        helper.handleRequest(message("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/cancelled\",\"params\":{\"requestId\":3}}"), request);
+        Thread.sleep(200);
+        // the tool ignores the interrupt, it is still running
+        assertFalse(future.isDone());
+        assertEquals(1, limiter("stuck").getInFlight());
+
+        STUCK_RELEASE.countDown();
+        future.get(5, TimeUnit.SECONDS);
+        assertEquals(0, limiter("stuck").getInFlight());
+    }
+
+    @Test
+    void streamedResultHoldsPermitUntilWritten() throws Exception {
+        MockHttpServletRequest request = newRequest();
+        CompletableFuture<McpProtocolBase> future = CompletableFuture.supplyAsync(() -> helper.handleStreamingRequest(toolCall(7, "slow", null), request));
+        OutputStream upstreamOut = awaitAccepted().getOutputStream();
+        upstreamOut.write("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n".getBytes(UTF_8));
+        upstreamOut.flush();
+
+        McpProtocolBase resp = future.get(5, TimeUnit.SECONDS);
+        // the body is not written yet, the call is still on
+        assertEquals(1, limiter("slow").getInFlight());
+        assertEquals(1, helper.getInFlightCalls().size());
+
+        upstreamOut.write("6\r\n world\r\n0\r\n\r\n".getBytes(UTF_8));
+        upstreamOut.flush();
+        String written = helper.getResponseWriter().writeValueAsString(resp);
+
+        assertTrue(written.contains("hello world"), written);
+        assertEquals(0, limiter("slow").getInFlight());
+        assertEquals(0, helper.getInFlightCalls().size());
+    }
+
+    private MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/mcp");
+        request.setAttribute(MCP_API_REQUEST_API_HOST, "127.0.0.1:" + upstream.getLocalPort());
+        request.setAttribute(MCP_API_REQUEST_AK, "test-ak");
+        request.setAttribute(MCP_API_REQUEST_SK, "test-sk");
+        return request;
+    }
+
+    private McpRequest toolCall(int id, String tool, String meta) {
+        String params = "{\"name\":\"" + tool + "\",\"arguments\":{\"q\":\"x\"}" + (meta != null ? ",\"_meta\":" + meta : "") + "}";
+        return message("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\",\"params\":" + params + "}");
+    }
+
+    private McpRequest message(String json) {
+        try {
+            return JacksonHelper.OBJECT_MAPPER.readValue(json, McpRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Call awaitUpstreamCall() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            List<Call> calls = upstreamCalls();
+            if (!calls.isEmpty()) {
+                return calls.get(0);
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No upstream call running.");
+    }
+
+    private Socket awaitAccepted() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (accepted.isEmpty()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("No upstream connection.");
+            }
+            Thread.sleep(10);
+        }
+        return accepted.get(0);
+    }
+
+    private List<Call> upstreamCalls() {
+        List<Call> calls = new ArrayList<>();
+        for (Call call : OpenApiHttpClient.getDispatcher().runningCalls()) {
+            if (call.request().url().port() == upstream.getLocalPort()) {
+                calls.add(call);
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Permit and registration go back once OkHttp reported the aborted call, a bit after the cancel.
+     */
+    private void awaitIdle(String tool) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter(tool).getInFlight() > 0 || helper.getInFlightCalls().size() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Call of " + tool + " still in flight.");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private McpToolLimiter limiter(String tool) {
+        McpToolRegistry registry = (McpToolRegistry) ReflectionTestUtils.getField(helper, "registry");
+        return registry.find(tool).getLimiter();
+    }
+
+    private static void assertErrorCode(int code, McpProtocolBase resp) {
+        assertTrue(resp instanceof McpErrorResponse, String.valueOf(resp));
+        assertEquals(code, ((McpErrorResponse) resp).getError().getCode());
+    }
+
+    @McpApiProvider
+    @RequestMapping("/test")
+    public static class TestProvider {
+
+        static final CountDownLatch STUCK_ENTERED = new CountDownLatch(1);
+
+        @McpTool(value = "slow", maxConcurrency = 1)
+        @PostMapping("/slow")
+        public String slow(@RequestBody Args args) {
+            return "ok";
+        }
+
+        @McpTool(value = "shared", coalesce = true)
+        @PostMapping("/shared")
+        public String shared(@RequestBody Args args) {
+            return "ok";
+        }
+
+        @McpTool(value = "stuck", maxConcurrency = 1)
+        @PostMapping("/stuck")
+        public String stuck(@RequestBody Args args) {
+            STUCK_ENTERED.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    STUCK_RELEASE.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return "ok";
+        }
+    }
+
+    public static class Args {
+
+        public String q;
+    }
+
+    private static class TestSdk implements UserMcpSdk {
+
+        @Override
+        public UserInfo fetchByAccessKey(String accessKey) {
+            return null;
+        }
+
+        @Override
+        public McpI18nProxy getI18nProxy() {
+            return key -> key;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ai.reakh.mcp.sdk.mcp;
+
+import static ai.reakh.mcp.sdk.constants.McpConstants.IF_NONE_MATCH_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import ai.reakh.mcp.sdk.UserInfo;
+import ai.reakh.mcp.sdk.UserMcpSdk;
+import ai.reakh.mcp.sdk.annotation.McpApiProvider;
+import ai.reakh.mcp.sdk.annotation.McpTool;
+import ai.reakh.mcp.sdk.mcp.model.McpProtocolBase;
+import ai.reakh.mcp.sdk.mcp.model.request.McpRequest;
+import ai.reakh.mcp.sdk.utils.JacksonHelper;
+
+/**
+ * The ETag and the not-modified decision of a tools/list answer come from the catalog snapshot its body was taken
+ * from, not from whatever was published since.
+ */
+class McpControllerHelperToolsListTest {
+
+    private GenericApplicationContext context;
+
+    private McpControllerHelper       helper;
+
+    @BeforeEach
+    void setUp() {
+        context = new GenericApplicationContext();
+        context.registerBean(TestProvider.class);
+        context.refresh();
+
+        helper = new McpControllerHelper();
+        ReflectionTestUtils.setField(helper, "context", context);
+        ReflectionTestUtils.setField(helper, "userMcpSdk", new TestSdk());
+        helper.initTools();
+    }
+
+    @AfterEach
+    void tearDown() {
+        helper.destroy();
+        context.close();
+    }
+
+    @Test
+    void etagComesFromTheAnsweredSnapshot() throws Exception {
+        McpProtocolBase page = helper.handleRequest(toolsList(1), new MockHttpServletRequest("POST", "/mcp"));
+        String etag = helper.getToolsListEtag(page);
+        assertEquals(helper.getToolsListEtag(), etag);
+        assertFalse(helper.isToolsListUnchanged(page));
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("POST", "/mcp");
+        conditional.addHeader(IF_NONE_MATCH_HEADER, '"' + etag + '"');
+        McpProtocolBase unchanged = helper.handleRequest(toolsList(2), conditional);
+
+        helper.unregisterProvider(context.getBean(TestProvider.class));
+        assertNotEquals(etag, helper.getToolsListEtag());
+        // published in between: both answers still carry the snapshot they were built from
+        assertEquals(etag, helper.getToolsListEtag(page));
+        assertEquals(etag, helper.getToolsListEtag(unchanged));
+        assertTrue(helper.isToolsListUnchanged(unchanged));
+        assertTrue(helper.getResponseWriter().writeValueAsString(page).contains("\"echo\""));
+
+        assertFalse(helper.isToolsListUnchanged(helper.handleRequest(toolsList(3), conditional)));
+    }
+
+    @Test
+    void listChangedIsNotAdvertised() throws Exception {
+        McpProtocolBase init = helper.handleRequest(message("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}"), new MockHttpServletRequest());
+        assertTrue(helper.getResponseWriter().writeValueAsString(init).contains("\"listChanged\":false"));
+        assertNull(helper.getToolsListEtag(init));
+    }
+
+    private McpRequest toolsList(int id) {
+        return message("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/list\",\"params\":{}}");
+    }
+
+    private McpRequest message(String json) {
+        try {
+            return JacksonHelper.OBJECT_MAPPER.readValue(json, McpRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @McpApiProvider
+    @RequestMapping("/test")
+    public static class TestProvider {
+
+        @McpTool(value = "echo")
+        @PostMapping("/echo")
+        public String echo(@RequestBody Args args) {
+            return args.q;
+        }
+    }
+
+    public static class Args {
+
+        public String q;
+    }
+
+    private static class TestSdk implements UserMcpSdk {
+
+        @Override
+        public UserInfo fetchByAccessKey(String accessKey) {
+            return null;
+        }
+
+        @Override
+        public McpI18nProxy getI18nProxy() {
+            return key -> key;
+        }
+    }
+}
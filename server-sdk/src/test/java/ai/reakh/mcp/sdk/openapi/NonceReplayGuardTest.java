@@ -0,0 +1,148 @@
+package ai.reakh.mcp.sdk.openapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import ai.reakh.mcp.sdk.utils.RequestIdGenerator;
+
+/**
+ * A nonce is accepted once within the window, whatever bucket it falls into, and the per bucket filters keep to the
+ * configured false positive rate up to {@link NonceReplayGuard#getCapacityPerBucket()}.
+ */
+class NonceReplayGuardTest {
+
+    /**
+     * 100ns intervals between the uuid epoch (1582-10-15) and the unix one.
+     */
+    private static final long UUID_EPOCH_OFFSET = 0x01B21DD213814000L;
+
+    private final Random      random            = new Random(20261018L);
+
+    @Test
+    void rejectsReplay() {
+        NonceReplayGuard guard = new NonceReplayGuard();
+        String nonce = RequestIdGenerator.next();
+
+        assertTrue(guard.accept("ak", nonce));
+        assertFalse(guard.accept("ak", nonce));
+        assertEquals(1, guard.getReplayedCount());
+
+        // nonces are per access key
+        assertTrue(guard.accept("other", nonce));
+        assertTrue(guard.accept("ak", RequestIdGenerator.next()));
+    }
+
+    @Test
+    void rejectsReplayOfOtherNonces() {
+        NonceReplayGuard guard = new NonceReplayGuard();
+        String nonce = UUID.randomUUID().toString();
+
+        assertTrue(guard.accept("ak", nonce));
+        assertFalse(guard.accept("ak", nonce));
+        assertTrue(guard.accept("ak", "free-form-nonce"));
+        assertFalse(guard.accept("ak", "free-form-nonce"));
+        assertEquals(2, guard.getReplayedCount());
+
+        guard.setRequireTimeBasedNonce(true);
+        assertFalse(guard.accept("ak", UUID.randomUUID().toString()));
+        assertFalse(guard.accept("ak", null));
+        assertEquals(2, guard.getOutOfWindowCount());
+    }
+
+    @Test
+    void rejectsNoncesOutOfWindow() {
+        NonceReplayGuard guard = new NonceReplayGuard(60_000, 10_000, 1e-6, 1 << 20);
+        long now = System.currentTimeMillis();
+
+        assertFalse(guard.accept("ak", nonceAt(now - 70_000)));
+        assertTrue(guard.accept("ak", nonceAt(now - 50_000)));
+        assertEquals(1, guard.getOutOfWindowCount());
+    }
+
+    @Test
+    void allowsClockSkewWithinBound() {
+        NonceReplayGuard guard = new NonceReplayGuard(60_000, 10_000, 1e-6, 1 << 20);
+        long now = System.currentTimeMillis();
+
+        String ahead = nonceAt(now + 5_000);
+        assertTrue(guard.accept("ak", ahead));
+        assertFalse(guard.accept("ak", ahead));
+        assertFalse(guard.accept("ak", nonceAt(now + 20_000)));
+        assertEquals(1, guard.getOutOfWindowCount());
+    }
+
+    @Test
+    void recyclesBucketsLeavingTheWindow() throws InterruptedException {
+        // one second window: one second buckets in a ring of three, the slot of a bucket comes back three seconds later
+        NonceReplayGuard guard = new NonceReplayGuard(1_000, 0, 1e-3, 3 * 8 * 640);
+        long start = System.currentTimeMillis();
+        long bucket = start / 1_000;
+        String old = nonceAt(start);
+        assertTrue(guard.accept("ak", old));
+
+        // saturate the bucket, fresh nonces of it are now mostly taken for replays
+        for (int i = 0; i < 50 * guard.getCapacityPerBucket(); i++) {
+            guard.accept("ak", nonceAt(start));
+        }
+        assertTrue(rejected(guard, start, 1_000) > 900);
+
+        long recycledAt = (bucket + 3) * 1_000 + 50;
+        Thread.sleep(Math.max(0, recycledAt - System.currentTimeMillis()));
+
+        // same slot, a fresh filter: nothing left of the saturated one
+        long now = System.currentTimeMillis();
+        assertTrue(rejected(guard, now, 1_000) < 10);
+        assertFalse(guard.accept("ak", old));
+    }
+
+    @Test
+    void holdsFalsePositiveRateAtCapacity() {
+        double fpp = 1e-2;
+        NonceReplayGuard guard = new NonceReplayGuard(60_000, 0, fpp, 1 << 20);
+        long at = System.currentTimeMillis() - 1_000;
+        long capacity = guard.getCapacityPerBucket();
+
+        long falsePositives = 0;
+        for (long i = 0; i < capacity; i++) {
+            if (!guard.accept("ak", nonceAt(at))) {
+                falsePositives++;
+            }
+        }
+        // the rate grows with the fill, over the fill it averages well below the one at capacity
+        assertTrue(falsePositives < capacity * fpp, "while filling: " + falsePositives);
+
+        int probes = 2_000;
+        long rejected = rejected(guard, at, probes);
+        assertTrue(rejected <= 2 * fpp * probes, "at capacity: " + rejected);
+        assertEquals(falsePositives + rejected, guard.getReplayedCount());
+    }
+
+    /**
+     * @return how many of {@code count} fresh nonces stamped {@code millis} were taken for replays.
+     */
+    private long rejected(NonceReplayGuard guard, long millis, int count) {
+        long rejected = 0;
+        for (int i = 0; i < count; i++) {
+            if (!guard.accept("ak", nonceAt(millis))) {
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Random time based uuid of the given epoch millis.
+     */
+    private String nonceAt(long millis) {
+        long timestamp = millis * 10_000 + UUID_EPOCH_OFFSET + random.nextInt(10_000);
+        long msb = (timestamp & 0xFFFFFFFFL) << 32 | (timestamp >>> 32 & 0xFFFF) << 16 | 0x1000 | (timestamp >>> 48 & 0x0FFF);
+        long lsb = (0x8000L | random.nextInt(0x4000)) << 48 | (random.nextLong() & 0xFFFFFFFFFFFFL);
+        return new UUID(msb, lsb).toString();
+    }
+}
@@ -0,0 +1,130 @@
+package ai.reakh.mcp.sdk.openapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The map-free common parameter path must sign bit for bit as {@code composeStringToSign} + {@code signString} do, and
+ * only accept the canonical encoding of a signature.
+ */
+class OpenApiSignerTest {
+
+    private static final int      RANDOM_INPUTS = 200_000;
+
+    /**
+     * Unreserved, reserved and percent-relevant ASCII, 2 and 3 byte UTF-8, a surrogate pair and lone surrogates.
+     */
+    private static final String[] PIECES        = { "a", "Z", "0", "-", "_", ".", "~", " ", "+", "*", "%", "=", "&", "/", "?", "#", ":", "@", "!", "'",
+            "(", ")", ",", ";", "[", "]", "\"", "\\", "\t", "\n", "\u007f", "\u0000", "\u00e9", "\u00df", "\u07ff", "\u4e2d", "\u0800",
+            "\uffff", "\ud83d\ude00", "\ud83d", "\ude00", "\udbff\udbff" };
+
+    @Test
+    void signsAsComposeStringToSign() {
+        Random random = new Random(20261018L);
+        for (int i = 0; i < RANDOM_INPUTS; i++) {
+            String ak = randomString(random);
+            String method = random.nextInt(4) == 0 ? randomString(random) : "HmacSHA1";
+            String nonce = randomString(random);
+            String sk = "sk-" + random.nextInt(8);
+            assertCompatible(ak, method, nonce, sk);
+        }
+    }
+
+    @Test
+    void signsEdgeCasesAsComposeStringToSign() {
+        assertCompatible("", "", "", "sk");
+        assertCompatible("ak", "HmacSHA1", "\ud800", "sk");
+        assertCompatible("ak", "HmacSHA1", "a\udc00b\ud800", "sk");
+        assertCompatible("ak", "HmacSHA1", "~*+% =&", "sk");
+        assertCompatible("ak".repeat(2000), "HmacSHA1", "\u4e2d".repeat(2000), "sk");
+    }
+
+    @Test
+    void rejectsNonCanonicalSignatures() {
+        String signature = OpenApiSigner.signCommonParams("ak", "HmacSHA1", "nonce", "sk");
+        assertEquals(28, signature.length());
+        assertTrue(signature.endsWith("=") && !signature.endsWith("=="));
+        assertTrue(verify(signature));
+
+        // 160 bits in 27 chars leave the 2 low bits of the last one, an encoder writes them as zero
+        char last = signature.charAt(26);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int bits = 1; bits < 4; bits++) {
+            char other = alphabet.charAt(alphabet.indexOf(last) ^ bits);
+            assertFalse(verify(signature.substring(0, 26) + other + "="), "low bits " + bits);
+        }
+
+        assertFalse(verify(signature.substring(0, 27)), "no padding");
+        assertFalse(verify(signature + "="), "extra padding");
+        assertFalse(verify(signature.substring(0, 27) + "A"), "padding replaced");
+        assertFalse(verify(" " + signature.substring(1)), "blank");
+        assertFalse(verify(signature.substring(0, 14) + "\n" + signature.substring(15)), "line break");
+        assertFalse(verify("-" + signature.substring(1)), "url-safe alphabet");
+        assertFalse(verify("_" + signature.substring(1)), "url-safe alphabet");
+        assertFalse(verify(signature.substring(0, 27) + "\u00bd"), "non-ascii");
+        assertFalse(verify(""), "empty");
+        assertFalse(verify(null), "null");
+
+        char[] flipped = signature.toCharArray();
+        flipped[0] = flipped[0] == 'A' ? 'B' : 'A';
+        assertFalse(verify(new String(flipped)), "other mac");
+    }
+
+    @Test
+    void evictDropsTheKeyState() throws Exception {
+        String signature = OpenApiSigner.signCommonParams("ak", "HmacSHA1", "nonce", "sk-rotated");
+        Thread other = new Thread(() -> OpenApiSigner.verifyCommonParams("ak", "HmacSHA1", "nonce", signature, "sk-rotated"));
+        other.start();
+        other.join();
+
+        Map<?, ?> prototypes = (Map<?, ?>) ReflectionTestUtils.getField(OpenApiSigner.class, "PROTOTYPES");
+        assertTrue(prototypes.containsKey("sk-rotated"));
+        OpenApiSigner.evict("sk-rotated");
+        assertFalse(prototypes.containsKey("sk-rotated"));
+
+        // no thread answers from a stale key
+        assertFalse(OpenApiSigner.verifyCommonParams("ak", "HmacSHA1", "nonce", signature, "sk-new"));
+        assertNotEquals(signature, OpenApiSigner.signCommonParams("ak", "HmacSHA1", "nonce", "sk-new"));
+        assertTrue(OpenApiSigner.verifyCommonParams("ak", "HmacSHA1", "nonce", signature, "sk-rotated"));
+    }
+
+    private static boolean verify(String signature) {
+        return OpenApiSigner.verifyCommonParams("ak", "HmacSHA1", "nonce", signature, "sk");
+    }
+
+    private static void assertCompatible(String ak, String method, String nonce, String sk) {
+        Map<String, String> params = new HashMap<>();
+        params.put("AccessKeyId", ak);
+        params.put("SignatureMethod", method);
+        params.put("SignatureNonce", nonce);
+        String expected = OpenApiSigner.signString(OpenApiSigner.composeStringToSign(params), sk);
+
+        String inputs = Arrays.asList(ak, method, nonce).toString();
+        assertEquals(expected, OpenApiSigner.signCommonParams(ak, method, nonce, sk), inputs);
+        assertTrue(OpenApiSigner.verifyCommonParams(ak, method, nonce, expected, sk), inputs);
+    }
+
+    private static String randomString(Random random) {
+        int length = random.nextInt(24);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(3) == 0) {
+                sb.append(PIECES[random.nextInt(PIECES.length)]);
+            } else {
+                // any char, lone surrogates included
+                sb.append((char) random.nextInt(Character.MAX_VALUE + 1));
+            }
+        }
+        return sb.toString();
+    }
+}